@@ -3,29 +3,59 @@ package dc.yandex.kanban.model;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
 
+/*
+Эпик изменяется одним потоком за раз (менеджер задач отвечает за это), а читаться может из нескольких потоков
+без блокировок. Подзадачи хранятся в ConcurrentSkipListMap, а статус и время эпика публикуются одним
+неизменяемым объектом, поэтому читатель не увидит наполовину пересчитанный эпик.
+Согласованную копию подзадач вместе со статусом и временем возвращает snapshot()
+*/
 public class Epic extends Task {
 
-    private final Map<Integer, SubTask> subTasks; // Список подзадач эпика
-    private LocalDateTime endTime;
+    private final NavigableMap<Integer, SubTask> subTasks; // Список подзадач эпика в порядке id
+    private volatile Aggregates aggregates; // статус и время эпика, заменяются целиком при пересчете
+    private volatile long version; // нечетное значение - эпик изменяется, четное - изменений нет
+    private volatile Consumer<Runnable> changeRunner; // выполняет изменения от подзадач, null - без блокировок
+
+    // Накопленные значения по подзадачам: статус и время эпика пересчитываются по ним без обхода подзадач
+    private final Map<Integer, SubTaskState> subTaskStates; // вклад каждой подзадачи в накопленные значения
+    private final int[] statusCounts; // количество подзадач по статусам
+    private final TreeMap<LocalDateTime, Integer> startTimes; // время начала подзадач с количеством повторов
+    private final TreeMap<LocalDateTime, Integer> endTimes; // время окончания подзадач с количеством повторов
 
     public Epic(int id, String name, String description) {
         super(id, name, description);
-        subTasks = new HashMap<>();
-        this.endTime = null;
+        subTasks = new ConcurrentSkipListMap<>();
+        subTaskStates = new HashMap<>();
+        statusCounts = new int[TaskStatus.values().length];
+        startTimes = new TreeMap<>();
+        endTimes = new TreeMap<>();
+        aggregates = new Aggregates(TaskStatus.NEW, null, null, Duration.ZERO);
     }
 
     public Epic(int id, String name, String description, LocalDateTime startTime, Duration duration) {
         super(id, name, description, startTime, duration);
-        subTasks = new HashMap<>();
-        this.endTime = null;
+        subTasks = new ConcurrentSkipListMap<>();
+        subTaskStates = new HashMap<>();
+        statusCounts = new int[TaskStatus.values().length];
+        startTimes = new TreeMap<>();
+        endTimes = new TreeMap<>();
+        LocalDateTime endTime = null;
         if (startTime != null && duration != null) {
-            this.endTime = startTime.plus(duration);
+            endTime = startTime.plus(duration);
         } else if (duration == null) {
-            this.endTime = startTime;
+            endTime = startTime;
         }
+        aggregates = new Aggregates(TaskStatus.NEW, startTime, endTime, duration);
     }
 
     @Override
@@ -36,23 +66,66 @@ public class Epic extends Task {
     // Добавляет подзадачу эпика
     public void addSubTask(SubTask subTask) {
         if (subTask != null) {
+            beginChange();
             subTasks.put(subTask.getId(), subTask);
-            updateStatusAndTime();
+            include(subTask);
+            applyAggregates();
         }
     }
 
+    // Добавляет несколько подзадач эпика с однократным пересчетом статуса и времени
+    public void addSubTasks(Collection<SubTask> subTasks) {
+        beginChange();
+        for (SubTask subTask : subTasks) {
+            if (subTask != null) {
+                this.subTasks.put(subTask.getId(), subTask);
+                include(subTask);
+            }
+        }
+        applyAggregates();
+    }
+
     // Удаляет одну подзадачу эпика
     public void deleteSubTask(SubTask subTask) {
         if (subTask != null) {
+            beginChange();
             subTasks.remove(subTask.getId());
-            updateStatusAndTime();
+            exclude(subTask.getId());
+            applyAggregates();
         }
     }
 
     // Удаляет все подзадачи эпика
     public void deleteAllSubTasks() {
+        beginChange();
         subTasks.clear();
-        updateStatusAndTime();
+        clearAggregates();
+        applyAggregates();
+    }
+
+    // Учитывает изменение статуса или времени подзадачи эпика за O(log k).
+    // Подзадачу могут изменить напрямую из любого потока, поэтому изменение выполняется через changeRunner
+    void onSubTaskChanged(SubTask subTask) {
+        Consumer<Runnable> runner = changeRunner;
+        if (runner == null) {
+            applySubTaskChange(subTask);
+        } else {
+            runner.accept(() -> applySubTaskChange(subTask));
+        }
+    }
+
+    // Задает, как выполнять изменения эпика, вызванные изменением его подзадач: менеджер задач
+    // выполняет их под теми же блокировками, что и свои изменения эпика. null - выполнять сразу
+    public void setChangeRunner(Consumer<Runnable> changeRunner) {
+        this.changeRunner = changeRunner;
+    }
+
+    private void applySubTaskChange(SubTask subTask) {
+        // изменилась копия подзадачи, еще не переданная эпику
+        if (subTasks.get(subTask.getId()) != subTask) return;
+        beginChange();
+        include(subTask);
+        applyAggregates();
     }
 
     // Возвращает список всех подзадач эпика
@@ -60,54 +133,114 @@ public class Epic extends Task {
         return new ArrayList<>(subTasks.values());
     }
 
-    // Обновляет статус эпика на основе статусов подзадач
-    // и рассчитывает продолжительность
-    public void updateStatusAndTime() {
+    // Возвращает подзадачи эпика по id без копирования, только для чтения
+    public NavigableMap<Integer, SubTask> getSubTaskMap() {
+        return Collections.unmodifiableNavigableMap(subTasks);
+    }
 
-        boolean hasNew = false; // флаг наличия подзадач в статусе NEW
-        boolean hasInProgress = false; // флаг наличия подзадач в статусе IN_PROGRESS
-        boolean hasDone = false; // флаг наличия подзадач в статусе DONE
-        startTime = null;
-        endTime = null;
-        duration = Duration.ZERO;
-
-        for (SubTask subTask : subTasks.values()) {
-            switch (subTask.getStatus()) {
-                case IN_PROGRESS:
-                    hasInProgress = true;
-                    break;
-                case DONE:
-                    hasDone = true;
-                    break;
-                default:
-                    hasNew = true;
-            }
-            LocalDateTime subTaskStartTime = subTask.getStartTime();
-            LocalDateTime subTaskEndTime = subTask.getEndTime();
-            if (subTaskStartTime != null && (startTime == null || startTime.isAfter(subTaskStartTime))) {
-                startTime = subTaskStartTime;
-            }
-            if (subTaskEndTime != null && (endTime == null || endTime.isBefore(subTaskEndTime))) {
-                endTime = subTaskEndTime;
+    // Возвращает копию эпика только для чтения, в которой подзадачи, статус и время относятся к одному моменту.
+    // Копия не ждет блокировок: если эпик изменился во время копирования, копирование повторяется
+    public Epic snapshot() {
+        while (true) {
+            long startVersion = version;
+            if ((startVersion & 1) == 0) {
+                Epic copy = new Epic(getId(), getName(), getDescription());
+                copy.subTasks.putAll(subTasks);
+                copy.aggregates = aggregates;
+                if (version == startVersion) return copy;
             }
+            Thread.onSpinWait();
         }
+    }
+
+    // Заменяет вклад подзадачи в накопленные значения ее текущими статусом и временем
+    private void include(SubTask subTask) {
+        exclude(subTask.getId());
+        SubTaskState state = new SubTaskState(subTask.getStatus(), subTask.getStartTime(), subTask.getEndTime());
+        subTaskStates.put(subTask.getId(), state);
+        statusCounts[state.status.ordinal()]++;
+        if (state.startTime != null) startTimes.merge(state.startTime, 1, Integer::sum);
+        if (state.endTime != null) endTimes.merge(state.endTime, 1, Integer::sum);
+    }
+
+    // Убирает вклад подзадачи из накопленных значений
+    private void exclude(int subTaskId) {
+        SubTaskState state = subTaskStates.remove(subTaskId);
+        if (state == null) return;
+        statusCounts[state.status.ordinal()]--;
+        if (state.startTime != null) decrement(startTimes, state.startTime);
+        if (state.endTime != null) decrement(endTimes, state.endTime);
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> times, LocalDateTime time) {
+        times.computeIfPresent(time, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void clearAggregates() {
+        subTaskStates.clear();
+        Arrays.fill(statusCounts, 0);
+        startTimes.clear();
+        endTimes.clear();
+    }
+
+    // Отмечает начало изменения: копирование эпика в snapshot() дождется его окончания.
+    // Изменения одного эпика выполняются одним потоком за раз, поэтому версия увеличивается без CAS
+    private void beginChange() {
+        version++;
+    }
+
+    // Публикует статус и время эпика по накопленным значениям и завершает изменение.
+    // Получатель уведомлений о смене статуса вызывается уже после завершения изменения:
+    // он может ждать блокировок, под которыми другие потоки копируют эпик
+    private void applyAggregates() {
+        boolean hasNew = statusCounts[TaskStatus.NEW.ordinal()] > 0;
+        boolean hasInProgress = statusCounts[TaskStatus.IN_PROGRESS.ordinal()] > 0;
+        boolean hasDone = statusCounts[TaskStatus.DONE.ordinal()] > 0;
 
+        TaskStatus status;
         if (hasInProgress || (hasDone && hasNew)) {
-            super.setStatus(TaskStatus.IN_PROGRESS);
+            status = TaskStatus.IN_PROGRESS;
         } else if (hasDone) {
-            super.setStatus(TaskStatus.DONE);
+            status = TaskStatus.DONE;
         } else {
-            super.setStatus(TaskStatus.NEW);
+            status = TaskStatus.NEW;
         }
 
-        if (startTime != null && endTime != null) {
-            duration = Duration.between(startTime, endTime);
-        }
+        LocalDateTime startTime = startTimes.isEmpty() ? null : startTimes.firstKey();
+        LocalDateTime endTime = endTimes.isEmpty() ? null : endTimes.lastKey();
+        Duration duration = startTime != null && endTime != null ? Duration.between(startTime, endTime) : Duration.ZERO;
+        aggregates = new Aggregates(status, startTime, endTime, duration);
+        version++;
+        super.setStatus(status);
+    }
+
+    // Обновляет статус эпика на основе статусов подзадач и рассчитывает продолжительность,
+    // заново собирая накопленные значения по всем подзадачам. Результат должен совпадать с пошаговым обновлением
+    public void updateStatusAndTime() {
+        beginChange();
+        clearAggregates();
+        subTasks.values().forEach(this::include);
+        applyAggregates();
+    }
+
+    @Override
+    public TaskStatus getStatus() {
+        return aggregates.status;
+    }
+
+    @Override
+    public LocalDateTime getStartTime() {
+        return aggregates.startTime;
+    }
+
+    @Override
+    public Duration getDuration() {
+        return aggregates.duration;
     }
 
     @Override
     public LocalDateTime getEndTime() {
-        return endTime;
+        return aggregates.endTime;
     }
 
     // Отключаем самостоятельное обновление статуса эпика пустым методом
@@ -128,6 +261,34 @@ public class Epic extends Task {
         throw new RuntimeException("Непосредственная установка продолжительности эпика недопустима.");
     }
 
+    // Статус и время эпика на момент последнего пересчета
+    private static class Aggregates {
+        private final TaskStatus status;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final Duration duration;
+
+        private Aggregates(TaskStatus status, LocalDateTime startTime, LocalDateTime endTime, Duration duration) {
+            this.status = status;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.duration = duration;
+        }
+    }
+
+    // Статус и время подзадачи, учтенные в накопленных значениях эпика
+    private static class SubTaskState {
+        private final TaskStatus status;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+
+        private SubTaskState(TaskStatus status, LocalDateTime startTime, LocalDateTime endTime) {
+            this.status = status;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+    }
+
     @Override
     public String toString() {
         return getClass().getName() + "{" +
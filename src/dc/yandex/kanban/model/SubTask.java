@@ -25,7 +25,19 @@ public class SubTask extends Task {
     @Override
     public void setStatus(TaskStatus status) {
         super.setStatus(status);
-        parentTask.updateStatusAndTime();
+        parentTask.onSubTaskChanged(this);
+    }
+
+    @Override
+    public void setStartTime(LocalDateTime startTime) {
+        super.setStartTime(startTime);
+        parentTask.onSubTaskChanged(this);
+    }
+
+    @Override
+    public void setDuration(Duration duration) {
+        super.setDuration(duration);
+        parentTask.onSubTaskChanged(this);
     }
 
     @Override
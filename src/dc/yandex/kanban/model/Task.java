@@ -11,6 +11,7 @@ public class Task {
     private TaskStatus status;
     protected LocalDateTime startTime;
     protected Duration duration;
+    private transient TaskStatusListener statusListener; // получает уведомления о смене статуса
 
 
     public Task(int id, String name, String description) {
@@ -65,7 +66,16 @@ public class Task {
     }
 
     public void setStatus(TaskStatus status) {
+        TaskStatus oldStatus = this.status;
         this.status = status;
+        if (statusListener != null && oldStatus != status) {
+            statusListener.statusChanged(this, oldStatus);
+        }
+    }
+
+    // Устанавливает получателя уведомлений о смене статуса, null - чтобы отключить уведомления
+    public void setStatusListener(TaskStatusListener statusListener) {
+        this.statusListener = statusListener;
     }
 
     public LocalDateTime getStartTime() {
@@ -0,0 +1,8 @@
+package dc.yandex.kanban.model;
+
+// Получает уведомление о смене статуса задачи, например, для обновления индекса задач по статусам
+@FunctionalInterface
+public interface TaskStatusListener {
+
+    void statusChanged(Task task, TaskStatus oldStatus);
+}
@@ -0,0 +1,77 @@
+/*
+Ключ задачи в приоритизированном списке: время начала в минутах от эпохи, затем id.
+Ключи разных задач не совпадают, поэтому задачи с одинаковым временем начала не теряются,
+а сравнение сводится к сравнению двух чисел
+*/
+package dc.yandex.kanban.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+public final class TaskTimeKey implements Comparable<TaskTimeKey> {
+
+    private final long epochMinute;
+    private final int id;
+
+    public TaskTimeKey(long epochMinute, int id) {
+        this.epochMinute = epochMinute;
+        this.id = id;
+    }
+
+    // Ключ задачи по ее текущему времени начала
+    public static TaskTimeKey of(Task task) {
+        return new TaskTimeKey(toEpochMinute(task.getStartTime()), task.getId());
+    }
+
+    // Ключ, предшествующий ключам всех задач, начинающихся в указанную минуту
+    public static TaskTimeKey lowerBound(LocalDateTime time) {
+        return new TaskTimeKey(toEpochMinute(time), Integer.MIN_VALUE);
+    }
+
+    // Ключ, следующий за ключами всех задач, начинающихся в указанную минуту
+    public static TaskTimeKey upperBound(LocalDateTime time) {
+        return new TaskTimeKey(toEpochMinute(time), Integer.MAX_VALUE);
+    }
+
+    public static long toEpochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // Первая минута от эпохи, начало которой не раньше момента time
+    public static long toCeilingEpochMinute(LocalDateTime time) {
+        long minute = toEpochMinute(time);
+        return time.getSecond() == 0 && time.getNano() == 0 ? minute : minute + 1;
+    }
+
+    public long getEpochMinute() {
+        return epochMinute;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public int compareTo(TaskTimeKey other) {
+        int result = Long.compare(epochMinute, other.epochMinute);
+        return result != 0 ? result : Integer.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskTimeKey key = (TaskTimeKey) o;
+        return epochMinute == key.epochMinute && id == key.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(epochMinute) + id;
+    }
+
+    @Override
+    public String toString() {
+        return epochMinute + ":" + id;
+    }
+}
@@ -0,0 +1,473 @@
+/*
+Менеджер задач поверх компактного хранилища CompactTaskStore.
+Менеджер не хранит переданные ему объекты: поля задач копируются в массивы хранилища,
+а на запросы возвращаются новые объекты Task, Epic и SubTask, собранные из этих полей.
+Поэтому изменения возвращенных или добавленных объектов попадают в менеджер только через update*.
+Статус и время эпика вычисляются по его подзадачам при каждом запросе эпика.
+Запросы по статусу и поиск по тексту просматривают хранилище целиком: отдельных индексов менеджер не держит
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Epic;
+import dc.yandex.kanban.model.SubTask;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
+import dc.yandex.kanban.service.exceptions.TaskTimeInterferenceException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+public class CompactTaskManager implements TaskManager {
+
+    private final CompactTaskStore store;
+    private int taskCounter; // Счетчик для id задач,эпиков и подзадач
+    private final HistoryManager historyManager;
+
+    public CompactTaskManager() {
+        this(Managers.getDefaultHistory());
+    }
+
+    // Создает менеджер с заданной историей просмотров
+    protected CompactTaskManager(HistoryManager historyManager) {
+        store = new CompactTaskStore();
+        taskCounter = 0;
+        this.historyManager = historyManager;
+    }
+
+    // Устанавливает счетчик для id задач
+    public void setTaskCounter(int taskCounter) {
+        this.taskCounter = taskCounter;
+    }
+
+    // Собирает объект задачи по id, null - если задачи нет. Эпики, уже собранные для этого запроса,
+    // берутся из epics, чтобы подзадачи одного эпика не собирали его заново
+    private Task view(int taskId, Map<Integer, Epic> epics) {
+        TaskType type = store.getType(taskId);
+        if (type == null) return null;
+        switch (type) {
+            case EPIC:
+                return epics.computeIfAbsent(taskId, this::epicView);
+            case SUBTASK:
+                Epic epic = epics.computeIfAbsent(store.getParentId(taskId), this::epicView);
+                return epic.getSubTaskMap().get(taskId);
+            default:
+                Task task = new Task(taskId, store.getName(taskId), store.getDescription(taskId),
+                        store.getStartTime(taskId), store.getDuration(taskId));
+                task.setStatus(store.getStatus(taskId));
+                return task;
+        }
+    }
+
+    // Собирает эпик вместе с подзадачами. Если сам эпик не добавлен в менеджер, у него нет названия и описания
+    private Epic epicView(int epicId) {
+        Epic epic = new Epic(epicId, store.getName(epicId), store.getDescription(epicId));
+        List<SubTask> subTasks = new ArrayList<>();
+        for (int subTaskId : store.getSubTaskIds(epicId)) {
+            SubTask subTask = new SubTask(epic, subTaskId, store.getName(subTaskId), store.getDescription(subTaskId),
+                    store.getStartTime(subTaskId), store.getDuration(subTaskId));
+            subTask.setStatus(store.getStatus(subTaskId));
+            subTasks.add(subTask);
+        }
+        epic.addSubTasks(subTasks);
+        return epic;
+    }
+
+    private <T extends Task> List<T> views(int[] taskIds, Class<T> type) {
+        Map<Integer, Epic> epics = new HashMap<>();
+        List<T> found = new ArrayList<>(taskIds.length);
+        for (int taskId : taskIds) {
+            found.add(type.cast(view(taskId, epics)));
+        }
+        return found;
+    }
+
+    // Статус эпика по статусам подзадач без сборки объектов, по тому же правилу, что и в Epic
+    private TaskStatus epicStatus(int epicId) {
+        boolean hasNew = false;
+        boolean hasInProgress = false;
+        boolean hasDone = false;
+        for (int subTaskId : store.getSubTaskIds(epicId)) {
+            TaskStatus status = store.getStatus(subTaskId);
+            hasNew |= status == TaskStatus.NEW;
+            hasInProgress |= status == TaskStatus.IN_PROGRESS;
+            hasDone |= status == TaskStatus.DONE;
+        }
+        if (hasInProgress || (hasDone && hasNew)) return TaskStatus.IN_PROGRESS;
+        return hasDone ? TaskStatus.DONE : TaskStatus.NEW;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return views(store.getIdsByStartTime(null, null), Task.class);
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) return new ArrayList<>();
+        return views(store.getIdsByStartTime(from, to), Task.class);
+    }
+
+    // Время начала в хранилище целое в минутах: позже момента from начинаются задачи со следующей минуты
+    @Override
+    public List<Task> getTasksStartingAfter(LocalDateTime from) {
+        return views(store.getIdsByStartTime(from.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1), null), Task.class);
+    }
+
+    // Копируются только id задач, объекты задач собираются по мере обхода
+    @Override
+    public Iterator<Task> iterateTasksFrom(LocalDateTime from) {
+        int[] taskIds = store.getIdsByStartTime(from, null);
+        Map<Integer, Epic> epics = new HashMap<>();
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < taskIds.length;
+            }
+
+            @Override
+            public Task next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return view(taskIds[next++], epics);
+            }
+        };
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        checkSlotRequest(duration, notBefore);
+        return store.findFreeStart(notBefore, duration);
+    }
+
+    @Override
+    public Task addTaskInFreeSlot(String name, String description, Duration duration, LocalDateTime notBefore) {
+        Task task = createNewTask(name, description, findNextFreeSlot(duration, notBefore), duration);
+        addTask(task);
+        return task;
+    }
+
+    // Проверяет параметры поиска свободного интервала: нулевой или отрицательный интервал "свободен" всегда
+    private static void checkSlotRequest(Duration duration, LocalDateTime notBefore) {
+        if (duration == null || notBefore == null) {
+            throw new IllegalArgumentException("Нужны продолжительность и время начала поиска интервала");
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Продолжительность должна быть положительной: " + duration);
+        }
+    }
+
+    // Получает список всех обычных задач
+    @Override
+    public List<Task> getTasks() {
+        return views(store.getIds(TaskType.TASK), Task.class);
+    }
+
+    // Получает список всех эпиков
+    @Override
+    public List<Epic> getEpics() {
+        return views(store.getIds(TaskType.EPIC), Epic.class);
+    }
+
+    // Получает список всех подзадач
+    @Override
+    public List<SubTask> getSubTasks() {
+        return views(store.getIds(TaskType.SUBTASK), SubTask.class);
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status, TaskType type) {
+        List<Task> found = new ArrayList<>();
+        for (TaskType taskType : TaskType.values()) {
+            if (type != null && type != taskType) continue;
+            int[] taskIds = Arrays.stream(store.getIds(taskType))
+                    .filter(taskId -> status == (taskType == TaskType.EPIC
+                            ? epicStatus(taskId) : store.getStatus(taskId)))
+                    .toArray();
+            found.addAll(views(taskIds, Task.class));
+        }
+        return found;
+    }
+
+    // Ранжирует так же, как TaskSearchIndex, но слова задач вычисляются из хранилища при каждом поиске
+    @Override
+    public List<Task> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(TaskSearchIndex.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+        int[] taskIds = store.getIds(null);
+        int[] documentCounts = new int[terms.size()]; // количество задач с каждым словом запроса
+        Map<Integer, int[]> matches = new HashMap<>(); // id задачи со всеми словами -> веса слов
+        for (int taskId : taskIds) {
+            Map<String, Integer> weights = TaskSearchIndex.termWeights(store.getName(taskId),
+                    store.getDescription(taskId));
+            int[] termWeights = new int[terms.size()];
+            boolean matchesAll = true;
+            for (int i = 0; i < terms.size(); i++) {
+                Integer weight = weights.get(terms.get(i));
+                if (weight == null) {
+                    matchesAll = false;
+                } else {
+                    termWeights[i] = weight;
+                    documentCounts[i]++;
+                }
+            }
+            if (matchesAll) matches.put(taskId, termWeights);
+        }
+
+        Map<Integer, Double> scores = new HashMap<>();
+        matches.forEach((taskId, termWeights) -> {
+            double score = 0;
+            for (int i = 0; i < termWeights.length; i++) {
+                score += termWeights[i] * Math.log(1.0 + (double) taskIds.length / documentCounts[i]);
+            }
+            scores.put(taskId, score);
+        });
+        // при равной оценке выше задача с меньшим id
+        Comparator<Integer> byRelevance = Comparator.<Integer>comparingDouble(scores::get)
+                .thenComparing(Comparator.reverseOrder());
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, byRelevance);
+        for (int taskId : scores.keySet()) {
+            best.add(taskId);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Integer> ranked = new ArrayList<>(best);
+        ranked.sort(byRelevance.reversed());
+        return views(ranked.stream().mapToInt(Integer::intValue).toArray(), Task.class);
+    }
+
+    // Получает список всех подзадач эпика по id эпика
+    @Override
+    public List<SubTask> getEpicSubTasksById(int epicId) {
+        if (store.getType(epicId) == TaskType.EPIC) {
+            return epicView(epicId).getSubTasks();
+        } else {
+            System.out.println("Эпик с id " + epicId + " не существует");
+            return null;
+        }
+    }
+
+    @Override
+    public Page<Task> getTasksPage(String cursor, int limit) {
+        return page(store.getIds(TaskType.TASK), cursor, limit, Task.class);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(String cursor, int limit) {
+        return page(store.getIds(TaskType.EPIC), cursor, limit, Epic.class);
+    }
+
+    @Override
+    public Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return page(store.getIds(TaskType.SUBTASK), cursor, limit, SubTask.class);
+    }
+
+    @Override
+    public Page<SubTask> getEpicSubTasksPage(int epicId, String cursor, int limit) {
+        if (store.getType(epicId) != TaskType.EPIC) {
+            throw new TaskNotFoundException("Эпик с id " + epicId + " не существует");
+        }
+        return page(store.getSubTaskIds(epicId), cursor, limit, SubTask.class);
+    }
+
+    // Собирает не больше limit задач с id больше закодированного в курсоре из упорядоченных id
+    private <T extends Task> Page<T> page(int[] taskIds, String cursor, int limit, Class<T> type) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+        int from = 0;
+        if (cursor != null) {
+            int position = Arrays.binarySearch(taskIds, Page.decodeCursor(cursor));
+            from = position >= 0 ? position + 1 : -position - 1;
+        }
+        int to = from + Math.min(limit, taskIds.length - from);
+        List<T> items = views(Arrays.copyOfRange(taskIds, from, to), type);
+        return new Page<>(items, to < taskIds.length ? Page.encodeCursor(taskIds[to - 1]) : null);
+    }
+
+    // Получает задачу, эпик или подзадачу по переданному id
+    @Override
+    public Task getTaskById(int taskId) {
+        return getTaskById(taskId, null);
+    }
+
+    // Получает задачу по id, просмотр записывается в историю клиента sessionId
+    @Override
+    public Task getTaskById(int taskId, String sessionId) {
+        Task foundTask = view(taskId, new HashMap<>());
+        if (foundTask == null) {
+            System.out.println("Задачи с id " + taskId + " не найдено");
+            throw new TaskNotFoundException("Задачи с id " + taskId + " не существует");
+        }
+        historyManager.add(sessionId, foundTask);
+        return foundTask;
+    }
+
+    // Удаляет задачу, эпик или подзадачу по переданному id
+    @Override
+    public void deleteTaskById(int taskId) {
+        TaskType type = store.getType(taskId);
+        if (type == null) {
+            System.out.println("Попытка удаления несуществующей задачи с id " + taskId);
+            return;
+        }
+        if (type == TaskType.EPIC) {
+            for (int subTaskId : store.getSubTaskIds(taskId)) {
+                delete(subTaskId);
+            }
+        }
+        delete(taskId);
+    }
+
+    private void delete(int taskId) {
+        historyManager.remove(taskId);
+        store.remove(taskId);
+    }
+
+    // Удаляет все задачи
+    @Override
+    public void deleteAllTasks() {
+        Arrays.stream(store.getIds(TaskType.TASK)).forEach(this::delete);
+    }
+
+    // Удаляет все подзадачи
+    @Override
+    public void deleteAllSubTasks() {
+        Arrays.stream(store.getIds(TaskType.SUBTASK)).forEach(this::delete);
+    }
+
+    // Удаляет все эпики (вместе с подзадачами)
+    @Override
+    public void deleteAllEpics() {
+        deleteAllSubTasks();
+        Arrays.stream(store.getIds(TaskType.EPIC)).forEach(this::delete);
+    }
+
+    // Создает новый объект Task
+    @Override
+    public Task createNewTask(String name, String description) {
+        taskCounter++;
+        return new Task(taskCounter, name, description);
+    }
+
+    @Override
+    public Task createNewTask(String name, String description, LocalDateTime startTime, Duration duration) {
+        taskCounter++;
+        return new Task(taskCounter, name, description, startTime, duration);
+    }
+
+    // Создает новый объект Epic
+    @Override
+    public Epic createNewEpic(String name, String description) {
+        taskCounter++;
+        return new Epic(taskCounter, name, description);
+    }
+
+    // Создает новый объект SubTask
+    @Override
+    public SubTask createNewSubtask(Epic epic, String name, String description) {
+        taskCounter++;
+        return new SubTask(epic, taskCounter, name, description);
+    }
+
+    @Override
+    public SubTask createNewSubtask(Epic epic, String name, String description, LocalDateTime startTime, Duration duration) {
+        taskCounter++;
+        return new SubTask(epic, taskCounter, name, description, startTime, duration);
+    }
+
+    // Проверяет пересечение задачи по времени выполнения с другими задачами
+    private void checkTimeInterference(Task task) {
+        if (task.getStartTime() != null && store.overlaps(task.getStartTime(), task.getEndTime(), task.getId())) {
+            throw new TaskTimeInterferenceException("Есть пересечения по времени с другой задачей");
+        }
+    }
+
+    // Добавляет задачу в список
+    @Override
+    public void addTask(Task task) {
+        if (task != null && task.getClass().equals(Task.class)) {
+            checkTimeInterference(task); // проверка пересечения по времени с другими задачами
+            store.put(task);
+        } else {
+            System.out.println("Попытка добавить null-задачу или задачу неподходящего типа.");
+        }
+    }
+
+    // Добавляет эпик в список
+    @Override
+    public void addEpic(Epic epic) {
+        if (epic != null) {
+            store.put(epic);
+        } else {
+            System.out.println("Попытка добавить null в качестве эпика.");
+        }
+    }
+
+    // Добавляет подзадачу в список
+    @Override
+    public void addSubTask(SubTask subTask) {
+        if (subTask != null) {
+            checkTimeInterference(subTask); // проверка пересечения по времени с другими задачами
+            store.put(subTask);
+        } else {
+            System.out.println("Попытка добавить подзадачу null");
+        }
+    }
+
+    // Обновляет задачу
+    @Override
+    public void updateTask(Task task) {
+        if (task != null) {
+            store.put(task);
+        } else {
+            System.out.println("Попытка добавить задачу null");
+        }
+    }
+
+    // Обновляет эпик
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic != null) {
+            store.put(epic);
+        } else {
+            System.out.println("Попытка добавить эпик null");
+        }
+    }
+
+    // Обновляет подзадачу
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        if (subTask != null) {
+            store.put(subTask);
+        } else {
+            System.out.println("Попытка добавить подзадачу null");
+        }
+    }
+
+    // Возвращает список истории просмотренных задач
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    // Возвращает историю просмотров клиента sessionId
+    @Override
+    public List<Task> getHistory(String sessionId) {
+        return historyManager.getHistory(sessionId);
+    }
+
+}
@@ -0,0 +1,515 @@
+/*
+Компактное хранилище задач: поля всех задач лежат в параллельных массивах примитивов
+(id, время начала в минутах от эпохи, продолжительность в минутах, статус, тип, id эпика),
+названия и описания - подряд в общем массиве байт UTF-8. Объекты Task в хранилище не держатся,
+на одну задачу приходится несколько десятков байт плюс текст.
+Подзадачи эпика связаны в двусвязный список по номерам ячеек, задачи со временем начала
+упорядочены в массиве номеров ячеек по времени начала и id.
+Время хранится с точностью до минуты, у эпиков хранятся только название и описание
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.SubTask;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskTimeKey;
+import dc.yandex.kanban.model.TaskType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+public class CompactTaskStore {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int NONE = -1; // нет ячейки
+    private static final byte FREE = -1; // тип освобожденной ячейки
+    private static final long NO_START = Long.MIN_VALUE; // время начала не задано
+    private static final int NO_DURATION = Integer.MIN_VALUE; // продолжительность не задана
+    private static final int NO_TEXT = -1; // длина строки null
+    private static final int MIN_TEXT_GARBAGE = 4096; // меньший мусор в массиве текста не собирается
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    // поля задач по номеру ячейки
+    private int[] ids;
+    private long[] startMinutes;
+    private int[] durations;
+    private byte[] statuses;
+    private byte[] types;
+    private int[] parentIds; // id эпика подзадачи
+    private int[] nextSiblings; // следующая подзадача того же эпика
+    private int[] prevSiblings; // предыдущая подзадача того же эпика
+    private int[] textOffsets; // начало названия, описание записано сразу за ним
+    private int[] nameLengths;
+    private int[] descriptionLengths;
+    private int slotCount; // использованная часть массивов вместе с освобожденными ячейками
+    private int[] freeSlots; // стек освобожденных ячеек
+    private int freeCount;
+    private int size;
+
+    private final SlotTable slotsById; // id задачи -> ячейка
+    private final SlotTable firstSubTasks; // id эпика -> ячейка первой подзадачи
+
+    private byte[] text;
+    private int textLength;
+    private int textGarbage; // байты удаленных и замененных строк
+
+    private int[] timeOrder; // ячейки задач со временем начала в порядке (начало, id)
+    private int timedCount;
+    private long maxDuration; // наибольшая продолжительность задачи из timeOrder
+    // продолжительности задач из timeOrder с количеством повторов: объект на каждое различное значение, а не на задачу,
+    // чтобы после удаления длинной задачи граница просмотра в latestOverlappingEnd снова уменьшалась
+    private TreeMap<Long, Integer> timedDurations;
+
+    public CompactTaskStore() {
+        slotsById = new SlotTable();
+        firstSubTasks = new SlotTable();
+        clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        ids = new int[MIN_CAPACITY];
+        startMinutes = new long[MIN_CAPACITY];
+        durations = new int[MIN_CAPACITY];
+        statuses = new byte[MIN_CAPACITY];
+        types = new byte[MIN_CAPACITY];
+        parentIds = new int[MIN_CAPACITY];
+        nextSiblings = new int[MIN_CAPACITY];
+        prevSiblings = new int[MIN_CAPACITY];
+        textOffsets = new int[MIN_CAPACITY];
+        nameLengths = new int[MIN_CAPACITY];
+        descriptionLengths = new int[MIN_CAPACITY];
+        slotCount = 0;
+        freeSlots = new int[MIN_CAPACITY];
+        freeCount = 0;
+        size = 0;
+        slotsById.clear();
+        firstSubTasks.clear();
+        text = new byte[MIN_CAPACITY * 32];
+        textLength = 0;
+        textGarbage = 0;
+        timeOrder = new int[MIN_CAPACITY];
+        timedCount = 0;
+        maxDuration = 0;
+        timedDurations = new TreeMap<>();
+    }
+
+    // Копирует поля задачи в хранилище, заменяя задачу с тем же id любого типа.
+    // Подзадачи эпика при замене эпика сохраняются: они связаны с id эпика, а не с его ячейкой
+    public void put(Task task) {
+        int duration = toDurationMinutes(task.getDuration());
+        remove(task.getId());
+        int slot = allocateSlot();
+        TaskType type = task.getType();
+        ids[slot] = task.getId();
+        types[slot] = (byte) type.ordinal();
+        statuses[slot] = (byte) task.getStatus().ordinal();
+        startMinutes[slot] = type == TaskType.EPIC || task.getStartTime() == null
+                ? NO_START : TaskTimeKey.toEpochMinute(task.getStartTime());
+        durations[slot] = duration;
+        parentIds[slot] = type == TaskType.SUBTASK ? ((SubTask) task).getParentTask().getId() : 0;
+        writeText(slot, task.getName(), task.getDescription());
+        slotsById.put(task.getId(), slot);
+        if (type == TaskType.SUBTASK) {
+            link(slot);
+        }
+        if (startMinutes[slot] != NO_START) {
+            insertTimeOrder(slot);
+        }
+        size++;
+    }
+
+    // Удаляет задачу по id, возвращает false, если ее нет
+    public boolean remove(int id) {
+        int slot = slotsById.remove(id);
+        if (slot == NONE) return false;
+        if (startMinutes[slot] != NO_START) {
+            removeTimeOrder(slot);
+        }
+        if (types[slot] == TaskType.SUBTASK.ordinal()) {
+            unlink(slot);
+        }
+        textGarbage += Math.max(nameLengths[slot], 0) + Math.max(descriptionLengths[slot], 0);
+        types[slot] = FREE;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        return slotsById.get(id) != NONE;
+    }
+
+    // Тип задачи по id, null - если ее нет
+    public TaskType getType(int id) {
+        int slot = slotsById.get(id);
+        return slot == NONE ? null : TYPES[types[slot]];
+    }
+
+    public TaskStatus getStatus(int id) {
+        return STATUSES[statuses[slotOf(id)]];
+    }
+
+    public String getName(int id) {
+        int slot = slotsById.get(id);
+        return slot == NONE ? null : readText(textOffsets[slot], nameLengths[slot]);
+    }
+
+    public String getDescription(int id) {
+        int slot = slotsById.get(id);
+        return slot == NONE ? null
+                : readText(textOffsets[slot] + Math.max(nameLengths[slot], 0), descriptionLengths[slot]);
+    }
+
+    public LocalDateTime getStartTime(int id) {
+        long startMinute = startMinutes[slotOf(id)];
+        return startMinute == NO_START ? null : toTime(startMinute);
+    }
+
+    public Duration getDuration(int id) {
+        int duration = durations[slotOf(id)];
+        return duration == NO_DURATION ? null : Duration.ofMinutes(duration);
+    }
+
+    public int getParentId(int id) {
+        return parentIds[slotOf(id)];
+    }
+
+    // Id задач указанного типа по возрастанию, при type == null - задач всех типов
+    public int[] getIds(TaskType type) {
+        int[] found = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (types[slot] != FREE && (type == null || types[slot] == type.ordinal())) {
+                found[count++] = ids[slot];
+            }
+        }
+        Arrays.sort(found, 0, count);
+        return Arrays.copyOf(found, count);
+    }
+
+    // Id подзадач эпика по возрастанию, эпик может и не храниться
+    public int[] getSubTaskIds(int epicId) {
+        int count = 0;
+        for (int slot = firstSubTasks.get(epicId); slot != NONE; slot = nextSiblings[slot]) {
+            count++;
+        }
+        int[] found = new int[count];
+        count = 0;
+        for (int slot = firstSubTasks.get(epicId); slot != NONE; slot = nextSiblings[slot]) {
+            found[count++] = ids[slot];
+        }
+        Arrays.sort(found);
+        return found;
+    }
+
+    // Id задач/подзадач со временем начала в интервале [from, to) в порядке времени начала и id,
+    // null - интервал не ограничен. Время начала хранится в целых минутах, поэтому граница с секундами
+    // округляется вверх до минуты: задача в 10:00 начинается раньше 10:00:30
+    public int[] getIdsByStartTime(LocalDateTime from, LocalDateTime to) {
+        int first = from == null ? 0 : lowerBound(TaskTimeKey.toCeilingEpochMinute(from), Integer.MIN_VALUE);
+        int last = to == null ? timedCount : lowerBound(TaskTimeKey.toCeilingEpochMinute(to), Integer.MIN_VALUE);
+        int[] found = new int[Math.max(last - first, 0)];
+        for (int i = 0; i < found.length; i++) {
+            found[i] = ids[timeOrder[first + i]];
+        }
+        return found;
+    }
+
+    // Проверяет, пересекается ли интервал [start, end) с какой-либо задачей, кроме задачи excludedId
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, int excludedId) {
+        return latestOverlappingEnd(TaskTimeKey.toEpochMinute(start), TaskTimeKey.toEpochMinute(end),
+                excludedId) != NO_START;
+    }
+
+    // Находит самое раннее время начала не раньше notBefore, при котором интервал заданной продолжительности
+    // ни с чем не пересекается
+    public LocalDateTime findFreeStart(LocalDateTime notBefore, Duration duration) {
+        LocalDateTime start = notBefore;
+        long blockingEnd;
+        while ((blockingEnd = latestOverlappingEnd(TaskTimeKey.toEpochMinute(start),
+                TaskTimeKey.toEpochMinute(start.plus(duration)), Integer.MIN_VALUE)) != NO_START) {
+            start = toTime(blockingEnd);
+        }
+        return start;
+    }
+
+    // Наибольшее время окончания среди задач, пересекающихся с интервалом [start, end), NO_START - если таких нет.
+    // Просматриваются только задачи, начавшиеся до end, но не раньше start - maxDuration:
+    // более ранние задачи заканчиваются до start
+    private long latestOverlappingEnd(long start, long end, int excludedId) {
+        long latest = NO_START;
+        for (int i = lowerBound(end, Integer.MIN_VALUE) - 1; i >= 0; i--) {
+            int slot = timeOrder[i];
+            if (startMinutes[slot] + maxDuration <= start) break;
+            long slotEnd = endMinute(slot);
+            if (slotEnd > start && slotEnd > latest && ids[slot] != excludedId) latest = slotEnd;
+        }
+        return latest;
+    }
+
+    // Наибольшая продолжительность задачи со временем начала в минутах - граница обратного просмотра при поиске пересечений
+    long getMaxDurationMinutes() {
+        return maxDuration;
+    }
+
+    // Продолжительность в минутах для массива durations. Не помещающаяся в int продолжительность отклоняется
+    private static int toDurationMinutes(Duration duration) {
+        if (duration == null) return NO_DURATION;
+        try {
+            int minutes = Math.toIntExact(duration.toMinutes());
+            if (minutes == NO_DURATION) throw new ArithmeticException();
+            return minutes;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Продолжительность задачи слишком велика: " + duration);
+        }
+    }
+
+    private long endMinute(int slot) {
+        return durations[slot] == NO_DURATION ? startMinutes[slot] : startMinutes[slot] + durations[slot];
+    }
+
+    private int slotOf(int id) {
+        int slot = slotsById.get(id);
+        if (slot == NONE) {
+            throw new IllegalArgumentException("Задачи с id " + id + " нет в хранилище");
+        }
+        return slot;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        if (slotCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            startMinutes = Arrays.copyOf(startMinutes, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            types = Arrays.copyOf(types, capacity);
+            parentIds = Arrays.copyOf(parentIds, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            prevSiblings = Arrays.copyOf(prevSiblings, capacity);
+            textOffsets = Arrays.copyOf(textOffsets, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+            descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        }
+        return slotCount++;
+    }
+
+    // Добавляет подзадачу в начало списка подзадач ее эпика
+    private void link(int slot) {
+        int head = firstSubTasks.get(parentIds[slot]);
+        nextSiblings[slot] = head;
+        prevSiblings[slot] = NONE;
+        if (head != NONE) prevSiblings[head] = slot;
+        firstSubTasks.put(parentIds[slot], slot);
+    }
+
+    private void unlink(int slot) {
+        int prev = prevSiblings[slot];
+        int next = nextSiblings[slot];
+        if (prev != NONE) {
+            nextSiblings[prev] = next;
+        } else if (next == NONE) {
+            firstSubTasks.remove(parentIds[slot]);
+        } else {
+            firstSubTasks.put(parentIds[slot], next);
+        }
+        if (next != NONE) prevSiblings[next] = prev;
+    }
+
+    // Вставка и удаление сдвигают хвост массива: это одно копирование памяти, без объектов на задачу
+    private void insertTimeOrder(int slot) {
+        int index = lowerBound(startMinutes[slot], ids[slot]);
+        if (timedCount == timeOrder.length) {
+            timeOrder = Arrays.copyOf(timeOrder, timedCount * 2);
+        }
+        System.arraycopy(timeOrder, index, timeOrder, index + 1, timedCount - index);
+        timeOrder[index] = slot;
+        timedCount++;
+        long duration = endMinute(slot) - startMinutes[slot];
+        timedDurations.merge(duration, 1, Integer::sum);
+        maxDuration = Math.max(maxDuration, duration);
+    }
+
+    private void removeTimeOrder(int slot) {
+        int index = lowerBound(startMinutes[slot], ids[slot]);
+        System.arraycopy(timeOrder, index + 1, timeOrder, index, timedCount - index - 1);
+        timedCount--;
+        long duration = endMinute(slot) - startMinutes[slot];
+        timedDurations.computeIfPresent(duration, (key, count) -> count > 1 ? count - 1 : null);
+        if (duration == maxDuration) {
+            maxDuration = timedDurations.isEmpty() ? 0 : Math.max(0, timedDurations.lastKey());
+        }
+    }
+
+    // Номер первой позиции timeOrder с ключом не меньше (startMinute, id)
+    private int lowerBound(long startMinute, int id) {
+        int low = 0;
+        int high = timedCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int slot = timeOrder[middle];
+            int result = Long.compare(startMinutes[slot], startMinute);
+            if (result == 0) result = Integer.compare(ids[slot], id);
+            if (result < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void writeText(int slot, String name, String description) {
+        byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+        int length = (nameBytes == null ? 0 : nameBytes.length)
+                + (descriptionBytes == null ? 0 : descriptionBytes.length);
+        if (textGarbage > MIN_TEXT_GARBAGE && textGarbage > textLength / 2) {
+            compactText();
+        }
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+        textOffsets[slot] = textLength;
+        nameLengths[slot] = nameBytes == null ? NO_TEXT : nameBytes.length;
+        descriptionLengths[slot] = descriptionBytes == null ? NO_TEXT : descriptionBytes.length;
+        if (nameBytes != null) {
+            System.arraycopy(nameBytes, 0, text, textLength, nameBytes.length);
+            textLength += nameBytes.length;
+        }
+        if (descriptionBytes != null) {
+            System.arraycopy(descriptionBytes, 0, text, textLength, descriptionBytes.length);
+            textLength += descriptionBytes.length;
+        }
+    }
+
+    private String readText(int offset, int length) {
+        return length == NO_TEXT ? null : new String(text, offset, length, StandardCharsets.UTF_8);
+    }
+
+    // Переписывает текст хранимых задач подряд, освобождая место удаленных и замененных строк
+    private void compactText() {
+        byte[] compacted = new byte[Math.max(textLength - textGarbage, MIN_CAPACITY) * 2];
+        int length = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (types[slot] == FREE) continue;
+            int slotLength = Math.max(nameLengths[slot], 0) + Math.max(descriptionLengths[slot], 0);
+            System.arraycopy(text, textOffsets[slot], compacted, length, slotLength);
+            textOffsets[slot] = length;
+            length += slotLength;
+        }
+        text = compacted;
+        textLength = length;
+        textGarbage = 0;
+    }
+
+    private static LocalDateTime toTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+
+    // Хеш-таблица id -> номер ячейки на примитивных массивах, устроена как TaskIdIndex
+    private static class SlotTable {
+        private int[] keys;
+        private int[] values; // номер ячейки + 1, 0 - пустая ячейка таблицы
+        private int mask;
+        private int size;
+
+        private SlotTable() {
+            clear();
+        }
+
+        private void clear() {
+            allocate(MIN_CAPACITY);
+            size = 0;
+        }
+
+        private int get(int key) {
+            for (int index = indexOf(key); values[index] != 0; index = (index + 1) & mask) {
+                if (keys[index] == key) return values[index] - 1;
+            }
+            return NONE;
+        }
+
+        private void put(int key, int value) {
+            int index = indexOf(key);
+            for (; values[index] != 0; index = (index + 1) & mask) {
+                if (keys[index] == key) {
+                    values[index] = value + 1;
+                    return;
+                }
+            }
+            keys[index] = key;
+            values[index] = value + 1;
+            if (++size > (mask + 1) / 2) {
+                resize((mask + 1) * 2);
+            }
+        }
+
+        private int remove(int key) {
+            for (int index = indexOf(key); values[index] != 0; index = (index + 1) & mask) {
+                if (keys[index] == key) {
+                    int value = values[index] - 1;
+                    shiftBack(index);
+                    size--;
+                    return value;
+                }
+            }
+            return NONE;
+        }
+
+        private void shiftBack(int free) {
+            int index = free;
+            while (true) {
+                index = (index + 1) & mask;
+                if (values[index] == 0) break;
+                int home = indexOf(keys[index]);
+                boolean reachable = free <= index ? (free < home && home <= index) : (free < home || home <= index);
+                if (!reachable) {
+                    keys[free] = keys[index];
+                    values[free] = values[index];
+                    free = index;
+                }
+            }
+            values[free] = 0;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(capacity);
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] == 0) continue;
+                int index = indexOf(oldKeys[i]);
+                while (values[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        private int indexOf(int key) {
+            int hash = key * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+}
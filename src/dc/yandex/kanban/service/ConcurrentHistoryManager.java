@@ -0,0 +1,135 @@
+/*
+История просмотров для одновременной работы из нескольких потоков.
+Просмотр задачи не берет общую блокировку: задача записывается в один из кольцевых буферов,
+выбранный по id потока. Буферы переносятся во вложенную историю под блокировкой, причем поток,
+заполнивший буфер наполовину, только пытается ее захватить и не ждет, если переносом уже занят другой поток.
+Ждать блокировку приходится, только если буфер заполнен полностью, при удалении и при чтении истории.
+Просмотры одного потока попадают в историю в своем порядке, просмотры разных потоков, сделанные
+почти одновременно, могут поменяться местами. Задачи, удаленные из менеджера (с id 0), в историю не попадают
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+public class ConcurrentHistoryManager implements HistoryManager {
+
+    private static final int BUFFER_COUNT = 16; // количество буферов, степень двойки
+    private static final int BUFFER_SIZE = 64; // размер одного буфера, степень двойки
+    private static final int DRAIN_THRESHOLD = BUFFER_SIZE / 2; // заполнение, при котором буфер переносится
+
+    private final HistoryManager delegate; // упорядоченная история, изменяется только под drainLock
+    private final ReentrantLock drainLock;
+    private final ReadBuffer[] buffers;
+
+    public ConcurrentHistoryManager(HistoryManager delegate) {
+        this.delegate = delegate;
+        this.drainLock = new ReentrantLock();
+        this.buffers = new ReadBuffer[BUFFER_COUNT];
+        for (int i = 0; i < BUFFER_COUNT; i++) {
+            buffers[i] = new ReadBuffer();
+        }
+    }
+
+    // Записывает просмотр в буфер потока. Если буфер заполнен, поток ждет его переноса в историю
+    @Override
+    public void add(Task task) {
+        if (task == null) return;
+        ReadBuffer buffer = buffers[(int) Thread.currentThread().getId() & (BUFFER_COUNT - 1)];
+        int pending;
+        while ((pending = buffer.offer(task)) < 0) {
+            drainLock.lock();
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        if (pending >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    // Удаление применяется после всех записанных к этому моменту просмотров
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            delegate.remove(id);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drainBuffers();
+            // задача могла быть удалена из менеджера, пока ее просмотр ждал в буфере
+            return delegate.getHistory().stream()
+                    .filter(task -> task.getId() != 0)
+                    .collect(Collectors.toList());
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private void drainBuffers() {
+        for (ReadBuffer buffer : buffers) {
+            buffer.drainTo(this);
+        }
+    }
+
+    private void addToHistory(Task task) {
+        if (task.getId() != 0) {
+            delegate.add(task);
+        }
+    }
+
+    // Кольцевой буфер просмотров: пишут несколько потоков, читает только поток, держащий drainLock
+    private static class ReadBuffer {
+        private final AtomicReferenceArray<Task> tasks = new AtomicReferenceArray<>(BUFFER_SIZE);
+        private final AtomicLong writeCount = new AtomicLong(); // занятые писателями ячейки
+        private volatile long readCount; // перенесенные в историю ячейки
+
+        // Записывает задачу, возвращает количество задач в буфере или -1, если буфер заполнен
+        private int offer(Task task) {
+            while (true) {
+                long read = readCount;
+                long write = writeCount.get();
+                if (write - read >= BUFFER_SIZE) return -1;
+                if (writeCount.compareAndSet(write, write + 1)) {
+                    tasks.set((int) write & (BUFFER_SIZE - 1), task);
+                    return (int) (write + 1 - read);
+                }
+            }
+        }
+
+        // Переносит задачи в историю по порядку записи. Ячейка, занятая писателем, но еще не заполненная,
+        // останавливает перенос до следующего раза
+        private void drainTo(ConcurrentHistoryManager manager) {
+            long read = readCount;
+            long write = writeCount.get();
+            while (read < write) {
+                int index = (int) read & (BUFFER_SIZE - 1);
+                Task task = tasks.get(index);
+                if (task == null) break;
+                tasks.lazySet(index, null);
+                manager.addToHistory(task);
+                read++;
+            }
+            readCount = read;
+        }
+    }
+}
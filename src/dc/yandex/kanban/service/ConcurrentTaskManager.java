@@ -0,0 +1,365 @@
+/*
+Менеджер задач для одновременной работы из нескольких потоков, например из обработчиков HTTP-сервера.
+Общие структуры InMemoryTaskManager защищены одной блокировкой StampedLock:
+- поиск задачи по id выполняется оптимистично, без захвата блокировки: таблица id состоит
+  из массивов, и чтение, пересекшееся с изменением, только проверяется и повторяется под блокировкой чтения;
+- остальные чтения обходят деревья и выполняются под блокировкой чтения, которую потоки держат одновременно;
+- изменения списков, индексов и приоритизированного списка выполняются под блокировкой записи.
+Эпики защищены отдельными блокировками, выбираемыми по id эпика (полосами). Подзадача добавляется
+под блокировкой полосы своего эпика и под блокировкой записи: общие структуры обновляются и подзадача
+связывается с эпиком в одной критической секции, поэтому читатели не видят подзадачу, которой еще нет в эпике.
+Изменения эпика, вызванные прямым изменением его подзадачи (SubTask.setStatus и другие), выполняются
+под теми же блокировками: менеджер передает их эпику через Epic.setChangeRunner.
+Читатели эпиков блокировку полосы не берут: эпик сам публикует подзадачи, статус и время так, что их можно
+читать из других потоков, а согласованную копию для сериализации дает Epic.snapshot().
+Блокировки полос всегда берутся раньше блокировки записи, несколько полос - по возрастанию номера.
+Блокировка записи повторно входимая для своего потока: методы InMemoryTaskManager вызывают друг друга.
+История просмотров по умолчанию раздельная для каждого клиента, поэтому просмотры клиентов не конкурируют между собой.
+Задачи, возвращенные менеджером, общие для всех потоков: изменять их нужно через методы update*
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Epic;
+import dc.yandex.kanban.model.SubTask;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+
+    private static final int STRIPE_COUNT = 64; // количество полос, степень двойки
+
+    private final StampedLock lock;
+    private final ReentrantLock[] stripes; // блокировки эпиков по id эпика
+    private volatile Thread writer; // поток, держащий блокировку записи
+    private final HistoryManager historyManager;
+
+    public ConcurrentTaskManager() {
+        this(Managers.getSessionHistory());
+    }
+
+    // Создает менеджер с заданной историей просмотров, история должна быть потокобезопасной
+    protected ConcurrentTaskManager(HistoryManager historyManager) {
+        super(historyManager);
+        this.historyManager = historyManager;
+        this.lock = new StampedLock();
+        this.stripes = new ReentrantLock[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private ReentrantLock stripeOf(int epicId) {
+        int hash = epicId * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPE_COUNT - 1)];
+    }
+
+    // Выполняет действие под блокировкой полосы эпика
+    private <T> T withEpic(int epicId, Supplier<T> action) {
+        ReentrantLock stripe = stripeOf(epicId);
+        stripe.lock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private void withEpic(int epicId, Runnable action) {
+        withEpic(epicId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Выполняет действие под блокировками всех полос - для изменений, затрагивающих все эпики
+    private void withAllEpics(Runnable action) {
+        int locked = 0;
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            action.run();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    // Id эпика, которого касается удаление задачи с указанным id, null - если задача не связана с эпиком
+    private Integer epicIdOf(int taskId) {
+        Task task = findTask(taskId);
+        if (task instanceof SubTask) return ((SubTask) task).getParentTask().getId();
+        if (task instanceof Epic) return task.getId();
+        return null;
+    }
+
+    // Выполняет чтение под блокировкой чтения
+    private <T> T read(Supplier<T> action) {
+        if (writer == Thread.currentThread()) return action.get();
+        long stamp = lock.readLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Выполняет изменение под блокировкой записи
+    private <T> T write(Supplier<T> action) {
+        if (writer == Thread.currentThread()) return action.get();
+        long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        try {
+            return action.get();
+        } finally {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void write(Runnable action) {
+        write(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Ищет задачу без блокировки. Если за время поиска задачи менялись, результат мог быть
+    // несогласованным или поиск мог упасть на заменяемых массивах - тогда поиск повторяется под блокировкой
+    @Override
+    public Task getTaskById(int taskId, String sessionId) {
+        long stamp = lock.tryOptimisticRead();
+        Task foundTask = null;
+        if (stamp != 0) {
+            try {
+                foundTask = findTask(taskId);
+            } catch (RuntimeException e) {
+                stamp = 0;
+            }
+        }
+        if (!lock.validate(stamp)) {
+            foundTask = read(() -> findTask(taskId));
+        }
+        if (foundTask == null) {
+            System.out.println("Задачи с id " + taskId + " не найдено");
+            throw new TaskNotFoundException("Задачи с id " + taskId + " не существует");
+        }
+        historyManager.add(sessionId, foundTask);
+        return foundTask;
+    }
+
+    @Override
+    protected synchronized int nextTaskId() {
+        return super.nextTaskId();
+    }
+
+    @Override
+    public synchronized void setTaskCounter(int taskCounter) {
+        super.setTaskCounter(taskCounter);
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return read(super::getTasks);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return read(super::getEpics);
+    }
+
+    @Override
+    public List<SubTask> getSubTasks() {
+        return read(super::getSubTasks);
+    }
+
+    @Override
+    public Page<Task> getTasksPage(String cursor, int limit) {
+        return read(() -> super.getTasksPage(cursor, limit));
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(String cursor, int limit) {
+        return read(() -> super.getEpicsPage(cursor, limit));
+    }
+
+    @Override
+    public Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return read(() -> super.getSubTasksPage(cursor, limit));
+    }
+
+    @Override
+    public Page<SubTask> getEpicSubTasksPage(int epicId, String cursor, int limit) {
+        return withEpic(epicId, () -> read(() -> super.getEpicSubTasksPage(epicId, cursor, limit)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(super::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return read(() -> super.getTasksBetween(from, to));
+    }
+
+    @Override
+    public List<Task> getTasksStartingAfter(LocalDateTime from) {
+        return read(() -> super.getTasksStartingAfter(from));
+    }
+
+    // Обходит копию части приоритизированного списка: после снятия блокировки список может измениться
+    @Override
+    public Iterator<Task> iterateTasksFrom(LocalDateTime from) {
+        return read(() -> {
+            List<Task> tasks = new ArrayList<>();
+            super.iterateTasksFrom(from).forEachRemaining(tasks::add);
+            return tasks.iterator();
+        });
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        return read(() -> super.findNextFreeSlot(duration, notBefore));
+    }
+
+    // Поиск интервала и добавление задачи выполняются под одной блокировкой записи
+    @Override
+    public Task addTaskInFreeSlot(String name, String description, Duration duration, LocalDateTime notBefore) {
+        return write(() -> super.addTaskInFreeSlot(name, description, duration, notBefore));
+    }
+
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status, TaskType type) {
+        return read(() -> super.getTasksByStatus(status, type));
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return read(() -> super.search(query, limit));
+    }
+
+    @Override
+    public List<SubTask> getEpicSubTasksById(int epicId) {
+        return withEpic(epicId, () -> read(() -> super.getEpicSubTasksById(epicId)));
+    }
+
+    // Эпик удаляемой задачи определяется до захвата его полосы, поэтому после захвата он проверяется еще раз:
+    // если задачу с этим id успели заменить, удаление повторяется с новым эпиком
+    @Override
+    public void deleteTaskById(int taskId) {
+        while (true) {
+            Integer epicId = read(() -> epicIdOf(taskId));
+            if (epicId == null) {
+                boolean deleted = write(() -> {
+                    if (epicIdOf(taskId) != null) return false;
+                    super.deleteTaskById(taskId);
+                    return true;
+                });
+                if (deleted) return;
+            } else {
+                boolean deleted = withEpic(epicId, () -> write(() -> {
+                    if (!epicId.equals(epicIdOf(taskId))) return false;
+                    super.deleteTaskById(taskId);
+                    return true;
+                }));
+                if (deleted) return;
+            }
+        }
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(super::deleteAllTasks);
+    }
+
+    @Override
+    public void deleteAllSubTasks() {
+        withAllEpics(() -> write(super::deleteAllSubTasks));
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        withAllEpics(() -> write(super::deleteAllEpics));
+    }
+
+    @Override
+    public void addTask(Task task) {
+        write(() -> super.addTask(task));
+    }
+
+    @Override
+    public void addEpic(Epic epic) {
+        if (epic == null) {
+            super.addEpic(null);
+            return;
+        }
+        guardChanges(epic);
+        withEpic(epic.getId(), () -> write(() -> super.addEpic(epic)));
+    }
+
+    // Подзадача становится видна в общих структурах вместе с пересчетом эпика.
+    // Полоса обеспечивает единственного изменяющего эпик, читатели во время пересчета видят прежнее состояние эпика
+    @Override
+    public void addSubTask(SubTask subTask) {
+        if (subTask == null) {
+            super.addSubTask(null);
+            return;
+        }
+        withEpic(subTask.getParentTask().getId(), () -> write(() -> super.addSubTask(subTask)));
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            super.updateEpic(null);
+            return;
+        }
+        guardChanges(epic);
+        withEpic(epic.getId(), () -> write(() -> super.updateEpic(epic)));
+    }
+
+    @Override
+    public void updateSubTask(SubTask subTask) {
+        if (subTask == null) {
+            super.updateSubTask(null);
+            return;
+        }
+        withEpic(subTask.getParentTask().getId(), () -> write(() -> super.updateSubTask(subTask)));
+    }
+
+    // Изменения эпика от его подзадач выполняются под блокировкой полосы эпика и блокировкой записи
+    private void guardChanges(Epic epic) {
+        int epicId = epic.getId();
+        epic.setChangeRunner(change -> withEpic(epicId, () -> write(change)));
+    }
+
+    // Статус эпика меняется при его пересчете под блокировкой полосы, индекс по статусам - общая структура
+    @Override
+    protected void onStatusChanged(Task task, TaskStatus oldStatus) {
+        write(() -> super.onStatusChanged(task, oldStatus));
+    }
+
+    @Override
+    public void prioritize(Task task) {
+        write(() -> super.prioritize(task));
+    }
+}
@@ -2,218 +2,858 @@ package dc.yandex.kanban.service;
 
 import dc.yandex.kanban.model.*;
 import dc.yandex.kanban.service.exceptions.ManagerSaveException;
+import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
+import dc.yandex.kanban.service.storage.CoalescingWriter;
+import dc.yandex.kanban.service.storage.PersistenceMode;
+import dc.yandex.kanban.service.storage.PersistenceStats;
+import dc.yandex.kanban.service.storage.SegmentedStore;
+import dc.yandex.kanban.service.storage.SnapshotFiles;
+import dc.yandex.kanban.service.storage.SnapshotFormat;
+import dc.yandex.kanban.service.storage.StorageSettings;
+import dc.yandex.kanban.service.storage.TaskCsvCodec;
+import dc.yandex.kanban.service.storage.TaskJournal;
+import dc.yandex.kanban.service.storage.TaskRecord;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
 
     private final String filename; // имя файла для хранения состояния менеджера
     private final String delimiter = ","; // разделитель значений в строках файла
-    private static final String fileHeader = "id,type,start_time,duration,name,status,description,epic";
-    private final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final String journalSuffix = ".log"; // суффикс имени файла журнала
+    private static final String tempSuffix = ".tmp"; // суффикс временного файла при записи снимка
+    // суффикс предыдущего снимка и журналов, которые нужны для восстановления состояния из него
+    private static final String backupSuffix = ".bak";
+    private static final String corruptedSuffix = ".corrupted"; // суффикс поврежденного снимка
+    private static final String historySuffix = ".history"; // суффикс файла истории просмотров
+    // операции журнала: добавление/изменение задачи, удаление по id, удаление всех задач одного типа
+    private static final String RECORD_PUT = "PUT";
+    private static final String RECORD_DELETE = "DEL";
+    private static final String RECORD_CLEAR = "CLR";
+    private final TaskCsvCodec journalCodec; // кодек строк журнала, используется потоком, изменяющим задачи
+    private final StringBuilder journalRecord; // переиспользуемый буфер записи журнала
+    private final StorageSettings settings; // настройки хранения
+    private final PersistenceStats stats; // замеры операций сохранения и восстановления
+    private final PersistentHistoryManager history; // история просмотров, сохраняемая рядом с задачами
+    private PersistenceMode persistenceMode; // способ сохранения изменений
+    private TaskJournal journal; // журнал изменений (только в режиме JOURNAL)
+    private long journalGeneration; // номер следующего поколения журнала, отправляемого на сжатие
+    private ExecutorService compactionExecutor; // фоновый поток сжатия журнала
+    private CoalescingWriter asyncWriter; // фоновый поток записи снимка (только в режиме ASYNC)
+    private final AtomicBoolean compactionScheduled; // сжатие уже запущено, второе не запускается до его окончания
+    private Future<?> pendingCompaction; // последнее запущенное сжатие, изменяется под блокировкой менеджера
+    private boolean restoring; // идет восстановление из файла, изменения не сохраняются
+    private final Object snapshotLock = new Object(); // снимок записывается одним потоком за раз
+    private PendingSync pendingSync; // записанное в журнал изменение, сброса которого на диск еще не ждали
+    private final SegmentedStore segmentedStore; // сегменты состояния (используются в режиме SEGMENTED)
+    private final Map<TaskType, TreeSet<Integer>> dirtySegments; // сегменты, которые нужно перезаписать
+    private final Set<TaskType> clearedTypes; // типы задач, все сегменты которых нужно удалить
 
     public FileBackedTaskManager(String filename) {
-        super();
+        this(filename, StorageSettings.defaults());
+    }
+
+    public FileBackedTaskManager(String filename, PersistenceMode persistenceMode) {
+        this(filename, StorageSettings.defaults().withPersistenceMode(persistenceMode));
+    }
+
+    // Создает менеджер с новой историей просмотров: сохраненная ранее история удаляется
+    public FileBackedTaskManager(String filename, StorageSettings settings) {
+        this(filename, settings, createHistory(filename));
+        history.reset();
+    }
+
+    private FileBackedTaskManager(String filename, StorageSettings settings, PersistentHistoryManager history) {
+        super(history);
+        this.history = history;
         this.filename = filename;
+        this.settings = settings;
+        this.stats = new PersistenceStats();
+        this.journalCodec = new TaskCsvCodec();
+        this.journalRecord = new StringBuilder(128);
+        this.persistenceMode = PersistenceMode.SNAPSHOT;
+        this.journalGeneration = 1;
+        this.compactionScheduled = new AtomicBoolean(false);
+        this.restoring = false;
+        this.segmentedStore = new SegmentedStore(filename, settings.getSegmentSize(), settings.getSnapshotFormat(), stats);
+        this.dirtySegments = new EnumMap<>(TaskType.class);
+        this.clearedTypes = EnumSet.noneOf(TaskType.class);
+        if (settings.getPersistenceMode() != PersistenceMode.SNAPSHOT) {
+            checkNoPersistedState();
+            openPersistence(settings.getPersistenceMode());
+        }
+    }
+
+    // Новый менеджер в режимах, отличных от SNAPSHOT, сразу записывает пустой снимок и убирает журналы.
+    // Если по этому пути уже сохранены задачи, они были бы потеряны без единого изменения - их нужно загрузить
+    private void checkNoPersistedState() {
+        try {
+            Path snapshot = Paths.get(filename);
+            Path backup = getBackupPath();
+            if ((Files.exists(snapshot) && Files.size(snapshot) > 0) || (Files.exists(backup) && Files.size(backup) > 0)
+                    || Files.exists(getJournalPath()) || !findRotatedJournals().isEmpty() || segmentedStore.exists()) {
+                throw new ManagerSaveException("По пути " + filename
+                        + " уже сохранены задачи, для их загрузки используйте loadFromFile");
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения файла", e);
+        }
+    }
+
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+
+    public PersistenceStats getPersistenceStats() {
+        return stats;
+    }
+
+    private static PersistentHistoryManager createHistory(String filename) {
+        return new PersistentHistoryManager(Managers.getDefaultHistory(), Paths.get(filename + historySuffix));
     }
 
     @Override
     public void addTask(Task task) {
-        super.addTask(task);
-        save();
+        mutate(() -> {
+            super.addTask(task);
+            commitPut(task);
+        });
+    }
+
+    // Поиск интервала и добавление задачи выполняются под одной блокировкой
+    @Override
+    public Task addTaskInFreeSlot(String name, String description, Duration duration, LocalDateTime notBefore) {
+        return mutate(() -> super.addTaskInFreeSlot(name, description, duration, notBefore));
     }
 
     @Override
     public void addEpic(Epic epic) {
-        super.addEpic(epic);
-        save();
+        mutate(() -> {
+            super.addEpic(epic);
+            commitPut(epic);
+        });
     }
 
     @Override
     public void addSubTask(SubTask subTask) {
-        super.addSubTask(subTask);
-        save();
+        mutate(() -> {
+            super.addSubTask(subTask);
+            commitPut(subTask);
+        });
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        mutate(() -> {
+            super.updateTask(task);
+            commitPut(task);
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        mutate(() -> {
+            super.updateEpic(epic);
+            commitPut(epic);
+        });
     }
 
     @Override
     public void updateSubTask(SubTask subTask) {
-        super.updateSubTask(subTask);
-        save();
+        mutate(() -> {
+            super.updateSubTask(subTask);
+            commitPut(subTask);
+        });
     }
 
     @Override
     public void deleteTaskById(int taskId) {
-        super.deleteTaskById(taskId);
-        save();
+        mutate(() -> {
+            Task task = findTask(taskId);
+            boolean exists = task != null;
+            if (exists && persistenceMode == PersistenceMode.SEGMENTED) {
+                markSegment(task);
+                if (task.getType() == TaskType.EPIC) {
+                    ((Epic) task).getSubTasks().forEach(this::markSegment);
+                }
+            }
+            super.deleteTaskById(taskId);
+            commit(exists ? RECORD_DELETE + delimiter + taskId : null);
+        });
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        mutate(() -> {
+            super.deleteAllTasks();
+            markCleared(TaskType.TASK);
+            commit(RECORD_CLEAR + delimiter + TaskType.TASK.name());
+        });
     }
 
     @Override
     public void deleteAllSubTasks() {
-        super.deleteAllSubTasks();
-        save();
+        mutate(() -> {
+            super.deleteAllSubTasks();
+            markCleared(TaskType.SUBTASK);
+            commit(RECORD_CLEAR + delimiter + TaskType.SUBTASK.name());
+        });
     }
 
     @Override
     public void deleteAllEpics() {
-        super.deleteAllEpics();
-        save();
+        mutate(() -> {
+            super.deleteAllEpics();
+            markCleared(TaskType.EPIC);
+            commit(RECORD_CLEAR + delimiter + TaskType.EPIC.name());
+        });
     }
 
-    // Сохраняет состояние менеджера в файл
-    public void save() {
-        try (BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filename, StandardCharsets.UTF_8))) {
-            bufferedWriter.write(fileHeader);
-            bufferedWriter.newLine();
-            writeTaskList(bufferedWriter, getTasks());
-            writeTaskList(bufferedWriter, getEpics());
-            writeTaskList(bufferedWriter, getSubTasks());
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка записи файла", e);
+    // Выполняет изменение и дописывает его в журнал под блокировкой менеджера, а сброса журнала на диск
+    // ждет уже без нее: пока один поток ждет, записи других потоков попадают в тот же групповой сброс.
+    // Вложенное изменение (например, добавление задачи из addTaskInFreeSlot) ожидание оставляет внешнему
+    private <T> T mutate(Supplier<T> change) {
+        boolean outermost = !Thread.holdsLock(this);
+        T result;
+        PendingSync sync;
+        synchronized (this) {
+            result = change.get();
+            if (!outermost) return result;
+            sync = pendingSync;
+            pendingSync = null;
         }
+        if (sync != null) {
+            sync.journal.awaitDurable(sync.sequence, sync.start);
+        }
+        return result;
+    }
+
+    private void mutate(Runnable change) {
+        mutate(() -> {
+            change.run();
+            return null;
+        });
     }
 
-    // Выводит задачи из списка в виде строк в буфер вывода
-    private void writeTaskList(BufferedWriter bufferedWriter, List<? extends Task> taskList) throws IOException {
-        taskList.forEach(task -> {
+    // Дожидается завершения фоновой записи и сжатия и закрывает журнал изменений
+    @Override
+    public void close() {
+        closeAsyncWriter();
+        if (compactionExecutor != null) {
+            compactionExecutor.shutdown();
             try {
-                bufferedWriter.write(toString(task));
-                bufferedWriter.newLine();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                if (!compactionExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    System.out.println("Сжатие журнала не завершилось за отведенное время");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            compactionExecutor = null;
+        }
+        closeJournal();
+        history.close();
+    }
 
-        });
+    // Запускает фоновую запись без задержки и дожидается сохранения всех сделанных изменений.
+    // В остальных режимах изменения сохраняются сразу и ждать нечего
+    public void flush() {
+        if (asyncWriter != null) {
+            asyncWriter.flush();
+        }
     }
 
-    // Возвращает объект менеджера, восстановленного из файла
-    public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file.getAbsolutePath());
-        if (file.exists()) {
+    // Дожидается, пока фоновый поток сохранит все изменения, сделанные до вызова
+    public void awaitPersisted() {
+        if (asyncWriter != null) {
+            asyncWriter.awaitPersisted();
+        }
+    }
+
+    // Сжимает журнал: записывает полный снимок состояния и удаляет вошедшие в него записи журнала.
+    // В режиме ASYNC дожидается записи снимка, в режиме SNAPSHOT просто сохраняет файл
+    public void compact() {
+        if (persistenceMode == PersistenceMode.ASYNC) {
+            flush();
+            return;
+        }
+        if (persistenceMode == PersistenceMode.SEGMENTED) {
+            // сегменты пишутся под блокировкой менеджера: иначе writeAll удалил бы или перезаписал
+            // устаревшими данными сегменты, записанные изменениями после фиксации снимка
+            synchronized (this) {
+                segmentedStore.writeAll(captureRecords());
+            }
+            return;
+        }
+        if (persistenceMode != PersistenceMode.JOURNAL) {
+            save();
+            return;
+        }
+        // одновременно выполняется только одно сжатие: если уже идет сжатие по порогу, сначала дожидаемся его
+        Future<?> compaction;
+        while (true) {
+            Future<?> pending;
+            synchronized (this) {
+                if (compactionScheduled.compareAndSet(false, true)) {
+                    compaction = scheduleCompaction();
+                    break;
+                }
+                pending = pendingCompaction;
+            }
             try {
-                List<String> lines = Files.readAllLines(file.toPath());
-                int maxId = 0;
-                for (int i = 1; i < lines.size(); i++) {
-                    String line = lines.get(i);
-                    if (line.isBlank()) continue;
-                    Task task = manager.fromString(line);
-                    if (task == null) continue;
-                    switch (task.getType()) {
-                        case EPIC:
-                            manager.addEpic((Epic) task);
-                            break;
-                        case SUBTASK:
-                            manager.addSubTask((SubTask) task);
-                            break;
-                        case TASK:
-                            manager.addTask(task);
-                            break;
-                        default:
-                            System.out.println("Неизвестный тип задачи: " + task.getType());
+                awaitCompaction(pending);
+            } catch (ManagerSaveException e) {
+                // ошибку чужого сжатия сообщает поток, который его запустил, журнал сожмется заново
+            }
+        }
+        awaitCompaction(compaction);
+    }
+
+    private void awaitCompaction(Future<?> compaction) {
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Сжатие журнала прервано", e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Ошибка сжатия журнала", e);
+        }
+    }
+
+    // Фиксирует добавление или изменение задачи, если она действительно попала в менеджер
+    private void commitPut(Task task) {
+        if (restoring) return;
+        if (persistenceMode == PersistenceMode.JOURNAL) {
+            if (task == null || findTask(task.getId()) != task) return;
+            journalRecord.setLength(0);
+            journalRecord.append(RECORD_PUT).append(delimiter).append(journalCodec.format(TaskRecord.of(task)));
+            commit(journalRecord);
+        } else {
+            if (persistenceMode == PersistenceMode.SEGMENTED && task != null && findTask(task.getId()) == task) {
+                markSegment(task);
+            }
+            commit(null);
+        }
+    }
+
+    // Фиксирует изменение: дописывает запись в журнал, отмечает для фоновой записи
+    // или перезаписывает файл целиком. record == null - записи журнала нет
+    private void commit(CharSequence record) {
+        if (restoring) return;
+        switch (persistenceMode) {
+            case JOURNAL:
+                if (record != null) {
+                    long start = System.nanoTime();
+                    long sequence = journal.write(record);
+                    // сброс на диск ожидается в mutate после снятия блокировки
+                    pendingSync = new PendingSync(journal, sequence, pendingSync == null ? start : pendingSync.start);
+                    compactIfNeeded();
+                }
+                break;
+            case ASYNC:
+                asyncWriter.markDirty();
+                break;
+            case SEGMENTED:
+                writeDirtySegments();
+                break;
+            default:
+                save();
+        }
+    }
+
+    // Отмечает сегмент задачи для перезаписи
+    private void markSegment(Task task) {
+        dirtySegments.computeIfAbsent(task.getType(), type -> new TreeSet<>())
+                .add(segmentedStore.segmentOf(task.getId()));
+    }
+
+    // Отмечает все сегменты типа для удаления
+    private void markCleared(TaskType type) {
+        if (persistenceMode == PersistenceMode.SEGMENTED) {
+            clearedTypes.add(type);
+        }
+    }
+
+    // Удаляет сегменты очищенных типов и перезаписывает отмеченные сегменты
+    private void writeDirtySegments() {
+        for (TaskType type : clearedTypes) {
+            segmentedStore.clearType(type);
+            dirtySegments.remove(type);
+        }
+        clearedTypes.clear();
+        dirtySegments.forEach((type, segments) -> segments.forEach(segment ->
+                segmentedStore.writeSegment(type, segment, captureSegment(type, segment))));
+        dirtySegments.clear();
+    }
+
+    // Фиксирует задачи одного типа из диапазона id сегмента
+    private List<TaskRecord> captureSegment(TaskType type, int segment) {
+        List<TaskRecord> records = new ArrayList<>();
+        int firstId = segmentedStore.firstIdOf(segment);
+        for (int id = firstId; id < firstId + segmentedStore.getSegmentSize(); id++) {
+            Task task = findTask(id);
+            if (task != null && task.getType() == type) {
+                records.add(TaskRecord.of(task));
+            }
+        }
+        return records;
+    }
+
+    // Записывает снимок в фоновом потоке. Под блокировкой менеджера только фиксируются записи задач
+    private void writeAsyncSnapshot() {
+        List<TaskRecord> records;
+        synchronized (this) {
+            records = captureRecords();
+        }
+        try {
+            long start = System.nanoTime();
+            writeSnapshot(records);
+            stats.recordSnapshot(System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи файла", e);
+        }
+    }
+
+    private void closeAsyncWriter() {
+        if (asyncWriter != null) {
+            asyncWriter.close();
+            asyncWriter = null;
+        }
+    }
+
+    // Запускает фоновое сжатие, если журнал превысил один из порогов
+    private void compactIfNeeded() {
+        if (settings.isCompactionDue(journal.getRecordCount(), journal.getSize())
+                && compactionScheduled.compareAndSet(false, true)) {
+            scheduleCompaction();
+        }
+    }
+
+    // Фиксирует записи снимка и переключает журнал на новый файл в текущем потоке,
+    // а запись снимка на диск отдает фоновому потоку. Вызывается под блокировкой менеджера
+    // после установки compactionScheduled, чтобы ни одна запись не попала между снимком и переключением журнала
+    private Future<?> scheduleCompaction() {
+        List<TaskRecord> records = captureRecords();
+        long generation;
+        try {
+            generation = rotateJournal();
+        } catch (ManagerSaveException e) {
+            compactionScheduled.set(false);
+            throw e;
+        }
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "kanban-journal-compaction");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingCompaction = compactionExecutor.submit(() -> writeCompactedSnapshot(records, generation));
+        return pendingCompaction;
+    }
+
+    // Записывает снимок и удаляет поколения журнала, которые в него вошли
+    private void writeCompactedSnapshot(List<TaskRecord> records, long generation) {
+        try {
+            long start = System.nanoTime();
+            writeSnapshot(records);
+            stats.recordSnapshot(System.nanoTime() - start);
+            retireJournals(new ArrayList<>(findRotatedJournals().headMap(generation, true).values()));
+            stats.recordCompaction();
+        } catch (IOException e) {
+            // поколения журнала остаются на диске и будут применены при загрузке
+            System.out.println("Ошибка сжатия журнала: " + e.getMessage());
+            throw new ManagerSaveException("Ошибка сжатия журнала", e);
+        } finally {
+            compactionScheduled.set(false);
+        }
+    }
+
+    // Переименовывает текущий журнал в очередное поколение и открывает новый, возвращает номер поколения
+    private long rotateJournal() {
+        long generation = journalGeneration++;
+        closeJournal();
+        try {
+            Files.move(getJournalPath(), Paths.get(filename + journalSuffix + "." + generation),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка переключения журнала", e);
+        }
+        journal = new TaskJournal(getJournalPath(), settings.getDurability(), stats);
+        return generation;
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    // Находит на диске поколения журнала, ожидающие сжатия, упорядоченные по номеру
+    private TreeMap<Long, Path> findRotatedJournals() {
+        TreeMap<Long, Path> rotated = new TreeMap<>();
+        Path journalPath = getJournalPath().toAbsolutePath();
+        String prefix = journalPath.getFileName().toString() + ".";
+        try (Stream<Path> files = Files.list(journalPath.getParent())) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix)) {
+                    try {
+                        rotated.put(Long.parseLong(name.substring(prefix.length())), path);
+                    } catch (NumberFormatException e) {
+                        // посторонний файл с похожим именем
                     }
-                    maxId = Integer.max(maxId, task.getId());
                 }
-                manager.setTaskCounter(maxId);
+            });
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка поиска файлов журнала", e);
+        }
+        return rotated;
+    }
+
+    // Находит журналы, оставленные для восстановления из предыдущего снимка, в порядке их записи
+    private List<Path> findRetiredJournals() {
+        TreeMap<Long, Path> retired = new TreeMap<>();
+        Path journalPath = getJournalPath().toAbsolutePath();
+        String journalName = journalPath.getFileName().toString();
+        String prefix = journalName + ".";
+        try (Stream<Path> files = Files.list(journalPath.getParent())) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.equals(journalName + backupSuffix)) {
+                    // текущий журнал был последним
+                    retired.put(Long.MAX_VALUE, path);
+                } else if (name.startsWith(prefix) && name.endsWith(backupSuffix)) {
+                    try {
+                        retired.put(Long.parseLong(name.substring(prefix.length(),
+                                name.length() - backupSuffix.length())), path);
+                    } catch (NumberFormatException e) {
+                        // посторонний файл с похожим именем
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка поиска файлов журнала", e);
+        }
+        return new ArrayList<>(retired.values());
+    }
+
+    // Оставляет журналы, вошедшие в новый снимок, для восстановления из предыдущего снимка.
+    // Журналы, оставленные для более раннего снимка, больше не нужны и удаляются
+    private void retireJournals(List<Path> journals) throws IOException {
+        for (Path retired : findRetiredJournals()) {
+            Files.deleteIfExists(retired);
+        }
+        for (Path journalPath : journals) {
+            Files.move(journalPath, Paths.get(journalPath + backupSuffix), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // Переключает способ сохранения изменений, текущее состояние при этом сохраняется полностью
+    private void openPersistence(PersistenceMode newMode) {
+        closeJournal();
+        closeAsyncWriter();
+        Path journalPath = getJournalPath();
+        TreeMap<Long, Path> rotatedJournals = findRotatedJournals();
+        // сегменты при их наличии считаются основным хранилищем, в других режимах их состояние переносится в файл
+        boolean leavingSegments = newMode != PersistenceMode.SEGMENTED && segmentedStore.exists();
+        if (newMode == PersistenceMode.JOURNAL || Files.exists(journalPath) || !rotatedJournals.isEmpty()
+                || leavingSegments) {
+            // записи журнала переносятся в снимок - новую точку отсчета для последующих записей
+            save();
+            try {
+                List<Path> journals = new ArrayList<>(rotatedJournals.values());
+                if (Files.exists(journalPath)) journals.add(journalPath);
+                retireJournals(journals);
+                if (newMode == PersistenceMode.JOURNAL) {
+                    journal = new TaskJournal(journalPath, settings.getDurability(), stats);
+                    journal.reset();
+                }
             } catch (IOException e) {
-                throw new RuntimeException(e);
+                throw new ManagerSaveException("Ошибка удаления журнала", e);
             }
         }
-        return manager;
+        if (leavingSegments) {
+            segmentedStore.delete();
+        }
+        if (newMode == PersistenceMode.SEGMENTED) {
+            dirtySegments.clear();
+            clearedTypes.clear();
+            segmentedStore.writeAll(captureRecords());
+        }
+        if (newMode == PersistenceMode.ASYNC) {
+            asyncWriter = new CoalescingWriter("kanban-async-persistence", this::writeAsyncSnapshot,
+                    settings.getAsyncWriteDelayMillis(), stats);
+        }
+        persistenceMode = newMode;
     }
 
-    // Формирует строковое представление задачи для сохранения в файл
-    private String toString(Task task) {
-        ArrayList<String> parts = new ArrayList<>();
+    private Path getJournalPath() {
+        return Paths.get(filename + journalSuffix);
+    }
 
-        if (task != null) {
-            parts.add(Integer.toString(task.getId()));
-            parts.add(task.getType().name());
+    // Сохраняет состояние менеджера в файл
+    public synchronized void save() {
+        try {
+            long start = System.nanoTime();
+            writeSnapshot(captureRecords());
+            stats.recordSnapshot(System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи файла", e);
+        }
+    }
 
-            if (task.getStartTime() != null) parts.add(task.getStartTime().format(dateTimeFormatter));
-            else parts.add("");
+    // Сохраняет состояние менеджера в файл формата CSV независимо от настроек хранения
+    public void exportToCsv(File file) {
+        try {
+            writeRecords(file.toPath(), captureRecords(), SnapshotFormat.CSV);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи файла", e);
+        }
+    }
 
-            if (task.getDuration() != null) parts.add(Long.toString(task.getDuration().toMinutes()));
-            else parts.add("");
+    // Фиксирует полный снимок текущего состояния. Эпики идут раньше подзадач
+    private List<TaskRecord> captureRecords() {
+        List<TaskRecord> records = new ArrayList<>();
+        getTasks().forEach(task -> records.add(TaskRecord.of(task)));
+        getEpics().forEach(task -> records.add(TaskRecord.of(task)));
+        getSubTasks().forEach(task -> records.add(TaskRecord.of(task)));
+        return records;
+    }
 
-            parts.add(task.getName());
-            parts.add(task.getStatus().name());
-            parts.add(task.getDescription());
-            if (task.getType().equals(TaskType.SUBTASK)) {
-                parts.add(Integer.toString(((SubTask) task).getParentTask().getId()));
+    // Записывает снимок с контрольной суммой во временный файл и атомарно заменяет им основной файл.
+    // Предыдущий снимок остается резервным на случай, если новый окажется поврежден.
+    // Снимок и каталог сбрасываются на диск при любой политике надежности: она относится только к журналу
+    private void writeSnapshot(List<TaskRecord> records) throws IOException {
+        synchronized (snapshotLock) {
+            Path temp = Paths.get(filename + tempSuffix);
+            Path target = Paths.get(filename);
+            Path directory = target.toAbsolutePath().getParent();
+            writeRecords(temp, records, settings.getSnapshotFormat());
+            // временный файл должен оказаться на диске раньше, чем им заменят основной
+            SnapshotFiles.syncDirectory(directory, stats);
+            if (Files.exists(target)) {
+                Files.move(target, getBackupPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
             }
-            return String.join(delimiter, parts);
-        } else {
-            return "";
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            SnapshotFiles.syncDirectory(directory, stats);
         }
     }
 
-    // Создает задачу по ее строковому представлению
-    private Task fromString(String value) {
-        // Если передали null или пустую строку - разобрать не можем
-        if (value == null || value.isBlank()) {
-            return null;
+    private Path getBackupPath() {
+        return Paths.get(filename + backupSuffix);
+    }
+
+    // Записывает задачи в файл в указанном формате и сбрасывает его на диск
+    private void writeRecords(Path path, List<TaskRecord> records, SnapshotFormat format) throws IOException {
+        SnapshotFiles.write(path, records, format, stats);
+    }
+
+    // Возвращает объект менеджера, восстановленного из файла
+    public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, PersistenceMode.SNAPSHOT);
+    }
+
+    // Возвращает объект менеджера, восстановленного из файла и журнала изменений к нему
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode persistenceMode) {
+        return loadFromFile(file, StorageSettings.defaults().withPersistenceMode(persistenceMode));
+    }
+
+    // Возвращает объект менеджера, восстановленного из файла и журнала изменений к нему
+    public static FileBackedTaskManager loadFromFile(File file, StorageSettings settings) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file.getAbsolutePath(),
+                settings.withPersistenceMode(PersistenceMode.SNAPSHOT), createHistory(file.getAbsolutePath()));
+        manager.restoring = true;
+        long loadStart = System.nanoTime();
+        Path backupPath = manager.getBackupPath();
+        List<TaskRecord> records;
+        boolean recovered = false;
+        if (manager.segmentedStore.exists()) {
+            // сегменты читаются параллельно, подзадачи связываются с эпиками после чтения всех сегментов
+            records = manager.segmentedStore.readAll();
+        } else {
+            try {
+                if (!file.exists() && Files.exists(backupPath)) {
+                    // сбой между переименованиями при записи снимка
+                    throw new IOException("Файл " + file + " не найден");
+                }
+                if (file.exists() && file.length() == 0 && !Files.exists(backupPath)) {
+                    // файл создан заранее, но менеджер еще ни разу не записывал в него снимок
+                    records = new ArrayList<>();
+                } else {
+                    records = SnapshotFiles.read(file.toPath());
+                }
+            } catch (IOException e) {
+                if (!Files.exists(backupPath)) {
+                    throw new ManagerSaveException("Ошибка чтения файла " + file, e);
+                }
+                System.out.println("Снимок поврежден, состояние восстанавливается из предыдущего: " + e.getMessage());
+                try {
+                    // пустой резервный файл - заготовка, которую заменил первый снимок менеджера:
+                    // снимки становятся резервными только после полной записи
+                    records = Files.size(backupPath) == 0 ? new ArrayList<>() : SnapshotFiles.read(backupPath);
+                    if (file.exists()) {
+                        // поврежденный файл не должен стать резервным при следующей записи снимка
+                        Files.move(file.toPath(), Paths.get(file.getAbsolutePath() + corruptedSuffix),
+                                StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException backupException) {
+                    backupException.addSuppressed(e);
+                    throw new ManagerSaveException("Ошибка чтения файла " + backupPath, backupException);
+                }
+                recovered = true;
+                manager.stats.recordRecovery();
+            }
         }
-        String[] parts = value.split(delimiter);
-        // Если в строке меньше 7 частей - разобрать не можем
-        if (parts.length < 7) {
-            return null;
+        int maxId = manager.restoreRecords(records);
+        long replayStart = System.nanoTime();
+        // сначала поколения, не успевшие попасть в снимок, затем текущий журнал.
+        // Записи, уже вошедшие в снимок, при повторном применении не меняют состояние.
+        // Предыдущему снимку нужны еще и журналы, вошедшие в поврежденный снимок
+        List<Path> journals = recovered ? manager.findRetiredJournals() : new ArrayList<>();
+        journals.addAll(manager.findRotatedJournals().values());
+        journals.add(manager.getJournalPath());
+        long replayedRecords = 0;
+        for (Path journalPath : journals) {
+            for (String record : TaskJournal.readRecords(journalPath)) {
+                maxId = Integer.max(maxId, manager.applyJournalRecord(record));
+                replayedRecords++;
+            }
         }
+        long replayEnd = System.nanoTime();
+        manager.stats.recordLoad(replayStart - loadStart, replayEnd - replayStart, replayedRecords);
+        manager.setTaskCounter(maxId);
+        // история восстанавливается после журнала: в ней остаются только существующие задачи
+        manager.history.restore(manager::findTask);
+        manager.restoring = false;
+        manager.openPersistence(settings.getPersistenceMode());
+        return manager;
+    }
 
-        Task task;
-        LocalDateTime taskTime = null;
-        Duration taskDuration = Duration.ZERO;
+    // Восстанавливает задачи снимка одной пакетной вставкой, возвращает максимальный id.
+    // Эпики создаются первыми, чтобы подзадачи могли ссылаться на них независимо от порядка строк
+    private int restoreRecords(List<TaskRecord> records) {
+        Map<Integer, Epic> epics = new HashMap<>();
+        List<Task> tasks = new ArrayList<>(records.size());
+        int maxId = 0;
+        for (TaskRecord record : records) {
+            if (record.getType() == TaskType.EPIC) {
+                Epic epic = (Epic) record.toTask(null);
+                epics.put(epic.getId(), epic);
+                tasks.add(epic);
+                maxId = Integer.max(maxId, record.getId());
+            }
+        }
+        for (TaskRecord record : records) {
+            if (record.getType() == TaskType.EPIC) continue;
+            Epic epic = null;
+            if (record.getType() == TaskType.SUBTASK) {
+                epic = epics.get(record.getEpicId());
+                if (epic == null) {
+                    System.out.println("Пропущена подзадача без эпика: " + record.getId());
+                    continue;
+                }
+            }
+            tasks.add(record.toTask(epic));
+            maxId = Integer.max(maxId, record.getId());
+        }
+        restoreTasks(tasks);
+        return maxId;
+    }
 
-        int taskId = Integer.parseInt(parts[0]);
-        TaskType taskType = TaskType.valueOf(parts[1]);
-        if (!parts[2].isBlank()) taskTime = LocalDateTime.parse(parts[2], dateTimeFormatter);
-        if (!parts[3].isBlank()) taskDuration = Duration.ofMinutes(Long.parseLong(parts[3]));
-        String taskName = parts[4];
-        TaskStatus taskStatus = TaskStatus.valueOf(parts[5]);
-        String taskDescription = parts[6];
-        int epicId = 0;
-        if (parts.length > 7) {
-            epicId = Integer.parseInt(parts[7]);
+    // Применяет одну запись журнала к состоянию менеджера, возвращает id добавленной задачи (или 0)
+    private int applyJournalRecord(String record) {
+        int separatorIndex = record.indexOf(delimiter);
+        if (separatorIndex < 0) {
+            System.out.println("Некорректная запись журнала: " + record);
+            return 0;
+        }
+        String operation = record.substring(0, separatorIndex);
+        String value = record.substring(separatorIndex + 1);
+        try {
+            switch (operation) {
+                case RECORD_PUT:
+                    TaskRecord taskRecord = journalCodec.parse(value);
+                    if (taskRecord == null) return 0;
+                    Epic epic = null;
+                    if (taskRecord.getType() == TaskType.SUBTASK) {
+                        Task parent = findTask(taskRecord.getEpicId());
+                        if (!(parent instanceof Epic)) {
+                            throw new TaskNotFoundException("Эпика с id " + taskRecord.getEpicId() + " не существует");
+                        }
+                        epic = (Epic) parent;
+                    }
+                    restoreTask(taskRecord.toTask(epic));
+                    return taskRecord.getId();
+                case RECORD_DELETE:
+                    deleteTaskById(Integer.parseInt(value));
+                    break;
+                case RECORD_CLEAR:
+                    clearByType(TaskType.valueOf(value));
+                    break;
+                default:
+                    System.out.println("Неизвестная операция журнала: " + operation);
+            }
+        } catch (TaskNotFoundException e) {
+            // эпик подзадачи удален далее в журнале - подзадача будет удалена вместе с ним
+            System.out.println("Пропущена запись журнала: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // недописанная при сбое последняя строка журнала
+            System.out.println("Некорректная запись журнала: " + record);
         }
+        return 0;
+    }
+
+    // Удаляет все задачи указанного типа
+    private void clearByType(TaskType taskType) {
         switch (taskType) {
             case EPIC:
-                task = new Epic(taskId, taskName, taskDescription, taskTime, taskDuration);
+                deleteAllEpics();
                 break;
             case SUBTASK:
-                task = new SubTask((Epic) getTaskById(epicId), taskId, taskName, taskDescription, taskTime, taskDuration);
-                task.setStatus(taskStatus);
+                deleteAllSubTasks();
                 break;
             default:
-                task = new Task(taskId, taskName, taskDescription, taskTime, taskDuration);
-                task.setStatus(taskStatus);
+                deleteAllTasks();
         }
-        return task;
     }
 
+    // Запись журнала, сброса которой на диск нужно дождаться после снятия блокировки менеджера.
+    // Если журнал к тому времени переключен, закрытие уже сбросило запись на диск
+    private static class PendingSync {
+        private final TaskJournal journal;
+        private final long sequence;
+        private final long start; // момент начала записи для замеров
+
+        private PendingSync(TaskJournal journal, long sequence, long start) {
+            this.journal = journal;
+            this.sequence = sequence;
+            this.start = start;
+        }
+    }
 }
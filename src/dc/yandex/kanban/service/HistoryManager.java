@@ -15,4 +15,24 @@ public interface HistoryManager {
     // Удаляет задачу по id из истории просмотров
     void remove(int id);
 
+    // Проверяет, есть ли задача с id в истории просмотров
+    default boolean contains(int id) {
+        return getHistory().stream().anyMatch(task -> task.getId() == id);
+    }
+
+    // Количество задач в истории просмотров
+    default int size() {
+        return getHistory().size();
+    }
+
+    // Добавляет задачу в историю просмотров клиента sessionId. История без разделения по клиентам общая для всех
+    default void add(String sessionId, Task task) {
+        add(task);
+    }
+
+    // Список задач, просмотренных клиентом sessionId
+    default List<Task> getHistory(String sessionId) {
+        return getHistory();
+    }
+
 }
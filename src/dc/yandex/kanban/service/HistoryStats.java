@@ -0,0 +1,42 @@
+/*
+Счетчики истории просмотров: текущий размер, оценка занятой памяти и вытеснения старых записей
+*/
+package dc.yandex.kanban.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HistoryStats {
+
+    private final AtomicLong size = new AtomicLong(); // количество задач в истории
+    private final AtomicLong estimatedBytes = new AtomicLong(); // оценка памяти, занятой историей
+    private final AtomicLong evictionCount = new AtomicLong(); // количество вытесненных записей
+    private final AtomicLong evictedBytes = new AtomicLong(); // оценка памяти вытесненных записей
+
+    // Учитывает текущий размер истории
+    public void recordSize(long size, long estimatedBytes) {
+        this.size.set(size);
+        this.estimatedBytes.set(estimatedBytes);
+    }
+
+    // Учитывает вытеснение самой старой записи
+    public void recordEviction(long bytes) {
+        evictionCount.incrementAndGet();
+        evictedBytes.addAndGet(bytes);
+    }
+
+    public long getSize() {
+        return size.get();
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes.get();
+    }
+}
@@ -8,14 +8,44 @@ import java.util.List;
 import java.util.Map;
 
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int UNLIMITED = 0; // ограничение истории не задано
+
+    // оценка памяти на запись истории без строк задачи: узел, запись мапа, ключ и сама задача
+    private static final long ENTRY_BYTES = 160;
+    private static final long STRING_BYTES = 40; // объект строки с массивом без символов
+
     private final Map<Integer, Node> taskHistoryMap; // мап для хранения истории
     private Node head; // "голова" списка истории
     private Node tail; // "хвост" списка истории
+    private final int maxSize; // наибольшее количество задач в истории, UNLIMITED - без ограничения
+    private final long maxBytes; // наибольшая оценка памяти истории, UNLIMITED - без ограничения
+    private long estimatedBytes; // оценка памяти, занятой записями истории
+    private final HistoryStats stats;
 
     public InMemoryHistoryManager() {
+        this(UNLIMITED, UNLIMITED);
+    }
+
+    public InMemoryHistoryManager(int maxSize) {
+        this(maxSize, UNLIMITED);
+    }
+
+    // Создает историю, из которой при превышении количества задач или оценки памяти
+    // вытесняются самые давние просмотры
+    public InMemoryHistoryManager(int maxSize, long maxBytes) {
+        if (maxSize < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Ограничения истории не могут быть отрицательными");
+        }
         taskHistoryMap = new HashMap<>();
         head = null;
         tail = null;
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
+        this.stats = new HistoryStats();
+    }
+
+    public HistoryStats getStats() {
+        return stats;
     }
 
     // Добавляет задачу в историю просмотров
@@ -24,7 +54,31 @@ public class InMemoryHistoryManager implements HistoryManager {
         if (task == null) return;
         int taskId = task.getId();
         remove(taskId);
-        taskHistoryMap.put(taskId, linkLast(task));
+        Node node = linkLast(task);
+        taskHistoryMap.put(taskId, node);
+        estimatedBytes += node.getBytes();
+        evictOverflow();
+        stats.recordSize(taskHistoryMap.size(), estimatedBytes);
+    }
+
+    // Вытесняет самые давние просмотры, пока история превышает ограничения. Последний просмотр остается,
+    // даже если одна задача превышает ограничение памяти
+    private void evictOverflow() {
+        while ((maxSize != UNLIMITED && taskHistoryMap.size() > maxSize)
+                || (maxBytes != UNLIMITED && estimatedBytes > maxBytes && head != tail)) {
+            Node eldest = head;
+            unlink(eldest);
+            stats.recordEviction(eldest.getBytes());
+        }
+    }
+
+    // Оценивает память записи истории: строки задачи считаются вместе с записью
+    private static long estimateBytes(Task task) {
+        return ENTRY_BYTES + estimateBytes(task.getName()) + estimateBytes(task.getDescription());
+    }
+
+    private static long estimateBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + 2L * value.length();
     }
 
     // Получает список истории просмотров задач
@@ -47,12 +101,35 @@ public class InMemoryHistoryManager implements HistoryManager {
     @Override
     public void remove(int id) {
         // если задача уже есть в истории - удалим ее
-        if (taskHistoryMap.containsKey(id)) {
-            Node nodeToDelete = taskHistoryMap.remove(id);
-            removeNode(nodeToDelete);
+        Node nodeToDelete = taskHistoryMap.get(id);
+        if (nodeToDelete != null) {
+            unlink(nodeToDelete);
+            stats.recordSize(taskHistoryMap.size(), estimatedBytes);
         }
     }
 
+    @Override
+    public boolean contains(int id) {
+        return taskHistoryMap.containsKey(id);
+    }
+
+    @Override
+    public int size() {
+        return taskHistoryMap.size();
+    }
+
+    // id задачи с самым давним просмотром - она будет вытеснена первой, для пустой истории null
+    Integer getEldestId() {
+        return head == null ? null : head.getKey();
+    }
+
+    // Убирает узел из списка и из мапа истории за O(1)
+    private void unlink(Node node) {
+        taskHistoryMap.remove(node.getKey());
+        removeNode(node);
+        estimatedBytes -= node.getBytes();
+    }
+
     // Удаляет узел из списка
     private void removeNode(Node node) {
         if (node == null) return;
@@ -77,7 +154,7 @@ public class InMemoryHistoryManager implements HistoryManager {
     }
 
     private Node linkLast(Task task) {
-        Node newNode = new Node(tail, null, task);
+        Node newNode = new Node(tail, null, task, task.getId(), estimateBytes(task));
         if (head == null) {
             head = newNode;
         }
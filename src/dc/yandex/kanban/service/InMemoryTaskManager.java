@@ -3,7 +3,9 @@ package dc.yandex.kanban.service;
 import dc.yandex.kanban.model.Epic;
 import dc.yandex.kanban.model.SubTask;
 import dc.yandex.kanban.model.Task;
-import dc.yandex.kanban.model.TaskStartTimeComparator;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskTimeKey;
+import dc.yandex.kanban.model.TaskType;
 import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
 import dc.yandex.kanban.service.exceptions.TaskTimeInterferenceException;
 
@@ -13,27 +15,105 @@ import java.util.*;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    private final Map<Integer, Task> taskList; // Список всех обычных задач
-    private final Map<Integer, Epic> epicList; // Список всех эпиков
-    private final Map<Integer, SubTask> subTaskList; // Список всех подзадач
+    private final NavigableMap<Integer, Task> taskList; // Список всех обычных задач в порядке id
+    private final NavigableMap<Integer, Epic> epicList; // Список всех эпиков в порядке id
+    private final NavigableMap<Integer, SubTask> subTaskList; // Список всех подзадач в порядке id
     private int taskCounter; // Счетчик для id задач,эпиков и подзадач
     private final HistoryManager historyManager;
-    private final TreeSet<Task> prioritizedTaskList;
+    private final TreeMap<TaskTimeKey, Task> prioritizedTaskList; // Задачи/подзадачи по времени начала и id
+    private final Map<Integer, TaskTimeKey> prioritizedKeys; // Ключи задач в приоритизированном списке по id
+    private final TaskIdIndex taskIndex; // Задачи, эпики и подзадачи по id для поиска за одно обращение
+    private final Map<TaskType, Map<TaskStatus, Map<Integer, Task>>> statusIndex; // Задачи по типам и статусам
+    private final TaskSearchIndex searchIndex; // Поиск по названиям и описаниям
+    private final TaskIntervalTree timeIntervals; // Интервалы выполнения задач из приоритизированного списка
 
     public InMemoryTaskManager() {
-        taskList = new HashMap<>();
-        epicList = new HashMap<>();
-        subTaskList = new HashMap<>();
-        taskCounter = 0;
-        historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory());
+    }
 
-        prioritizedTaskList = new TreeSet<>(new TaskStartTimeComparator());
+    // Создает менеджер с заданной историей просмотров
+    protected InMemoryTaskManager(HistoryManager historyManager) {
+        taskList = new TreeMap<>();
+        epicList = new TreeMap<>();
+        subTaskList = new TreeMap<>();
+        taskCounter = 0;
+        this.historyManager = historyManager;
+
+        prioritizedTaskList = new TreeMap<>();
+        prioritizedKeys = new HashMap<>();
+        taskIndex = new TaskIdIndex();
+        statusIndex = new EnumMap<>(TaskType.class);
+        for (TaskType type : TaskType.values()) {
+            Map<TaskStatus, Map<Integer, Task>> typeIndex = new EnumMap<>(TaskStatus.class);
+            for (TaskStatus status : TaskStatus.values()) {
+                typeIndex.put(status, new HashMap<>());
+            }
+            statusIndex.put(type, typeIndex);
+        }
+        searchIndex = new TaskSearchIndex();
+        timeIntervals = new TaskIntervalTree();
     }
 
-    // Добавляет задачу в приоритизированный список
+    // Добавляет задачу в приоритизированный список, заменяя прежнюю запись задачи с тем же id
     public void prioritize(Task task) {
-        if (task != null && task.getStartTime() != null) {
-            prioritizedTaskList.add(task);
+        if (task == null) return;
+        unprioritize(task);
+        if (task.getStartTime() != null) {
+            TaskTimeKey key = TaskTimeKey.of(task);
+            prioritizedTaskList.put(key, task);
+            prioritizedKeys.put(task.getId(), key);
+            timeIntervals.put(task);
+        }
+    }
+
+    // Убирает задачу из приоритизированного списка по ключу, сохраненному при добавлении:
+    // время начала задачи могло измениться
+    private void unprioritize(Task task) {
+        TaskTimeKey key = prioritizedKeys.remove(task.getId());
+        if (key != null) {
+            prioritizedTaskList.remove(key);
+            timeIntervals.remove(task.getId());
+        }
+    }
+
+    // Обновляет запись индекса по id после изменения списков. Если id совпадает у задач разных типов,
+    // в индексе остается задача с тем же приоритетом, что и при поиске по спискам: задача, подзадача, эпик
+    private void reindex(int taskId) {
+        Task task = taskList.get(taskId);
+        if (task == null) task = subTaskList.get(taskId);
+        if (task == null) task = epicList.get(taskId);
+        if (task == null) {
+            taskIndex.remove(taskId);
+        } else {
+            taskIndex.put(taskId, task);
+        }
+    }
+
+    // Добавляет задачу в индексы по статусам и по тексту и подписывается на смену ее статуса
+    private void indexTask(Task task) {
+        statusIndex.get(task.getType()).get(task.getStatus()).put(task.getId(), task);
+        searchIndex.put(task);
+        task.setStatusListener(this::onStatusChanged);
+    }
+
+    // Убирает задачу из индексов по статусам и по тексту. Вызывается до очистки данных удаляемой задачи
+    private void unindexTask(Task task) {
+        statusIndex.get(task.getType()).get(task.getStatus()).remove(task.getId(), task);
+        searchIndex.remove(task);
+        task.setStatusListener(null);
+    }
+
+    // Заменяет в индексах прежнюю задачу с тем же id новой
+    private void replaceIndexed(Task oldTask, Task task) {
+        if (oldTask != null) unindexTask(oldTask);
+        indexTask(task);
+    }
+
+    // Переносит задачу в индексе по статусам при смене ее статуса
+    protected void onStatusChanged(Task task, TaskStatus oldStatus) {
+        Map<TaskStatus, Map<Integer, Task>> typeIndex = statusIndex.get(task.getType());
+        if (typeIndex.get(oldStatus).remove(task.getId(), task)) {
+            typeIndex.get(task.getStatus()).put(task.getId(), task);
         }
     }
 
@@ -56,9 +136,66 @@ public class InMemoryTaskManager implements TaskManager {
         this.taskCounter = taskCounter;
     }
 
+    // Выдает id для новой задачи
+    protected int nextTaskId() {
+        return ++taskCounter;
+    }
+
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTaskList);
+        return new ArrayList<>(prioritizedTaskList.values());
+    }
+
+    // Копирует только часть приоритизированного списка, попадающую в интервал. Ключи списка точны до минуты,
+    // поэтому берутся все минуты, которых касается интервал, а в крайних минутах время начала сравнивается точно
+    @Override
+    public List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> found = new ArrayList<>();
+        if (!from.isBefore(to)) return found;
+        for (Task task : prioritizedTaskList.subMap(TaskTimeKey.lowerBound(from), true,
+                new TaskTimeKey(TaskTimeKey.toCeilingEpochMinute(to), Integer.MIN_VALUE), false).values()) {
+            if (!task.getStartTime().isBefore(from) && task.getStartTime().isBefore(to)) found.add(task);
+        }
+        return found;
+    }
+
+    @Override
+    public List<Task> getTasksStartingAfter(LocalDateTime from) {
+        List<Task> found = new ArrayList<>();
+        for (Task task : prioritizedTaskList.tailMap(TaskTimeKey.lowerBound(from), true).values()) {
+            if (task.getStartTime().isAfter(from)) found.add(task);
+        }
+        return found;
+    }
+
+    // Итератор не поддерживает удаление, список нельзя менять до окончания обхода
+    @Override
+    public Iterator<Task> iterateTasksFrom(LocalDateTime from) {
+        return Collections.unmodifiableCollection(
+                prioritizedTaskList.tailMap(TaskTimeKey.lowerBound(from), true).values()).iterator();
+    }
+
+    @Override
+    public LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore) {
+        checkSlotRequest(duration, notBefore);
+        return timeIntervals.findFreeStart(notBefore, duration);
+    }
+
+    @Override
+    public Task addTaskInFreeSlot(String name, String description, Duration duration, LocalDateTime notBefore) {
+        Task task = createNewTask(name, description, findNextFreeSlot(duration, notBefore), duration);
+        addTask(task);
+        return task;
+    }
+
+    // Проверяет параметры поиска свободного интервала: нулевой или отрицательный интервал "свободен" всегда
+    private static void checkSlotRequest(Duration duration, LocalDateTime notBefore) {
+        if (duration == null || notBefore == null) {
+            throw new IllegalArgumentException("Нужны продолжительность и время начала поиска интервала");
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Продолжительность должна быть положительной: " + duration);
+        }
     }
 
     // Получает список всех обычных задач
@@ -79,6 +216,22 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(subTaskList.values());
     }
 
+    @Override
+    public List<Task> getTasksByStatus(TaskStatus status, TaskType type) {
+        List<Task> found = new ArrayList<>();
+        if (type != null) {
+            found.addAll(statusIndex.get(type).get(status).values());
+        } else {
+            statusIndex.values().forEach(typeIndex -> found.addAll(typeIndex.get(status).values()));
+        }
+        return found;
+    }
+
+    @Override
+    public List<Task> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
     // Получает список всех подзадач эпика по id эпика
     @Override
     public List<SubTask> getEpicSubTasksById(int epicId) {
@@ -91,33 +244,152 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
+    @Override
+    public Page<Task> getTasksPage(String cursor, int limit) {
+        return page(taskList, cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(String cursor, int limit) {
+        return page(epicList, cursor, limit);
+    }
+
+    @Override
+    public Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return page(subTaskList, cursor, limit);
+    }
+
+    @Override
+    public Page<SubTask> getEpicSubTasksPage(int epicId, String cursor, int limit) {
+        Epic epic = epicList.get(epicId);
+        if (epic == null) {
+            throw new TaskNotFoundException("Эпик с id " + epicId + " не существует");
+        }
+        return page(epic.getSubTaskMap(), cursor, limit);
+    }
+
+    // Копирует не больше limit задач с id больше закодированного в курсоре, cursor == null - с начала списка
+    private static <T extends Task> Page<T> page(NavigableMap<Integer, T> tasks, String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+        NavigableMap<Integer, T> rest = cursor == null ? tasks : tasks.tailMap(Page.decodeCursor(cursor), false);
+        List<T> items = new ArrayList<>(Math.min(limit, rest.size()));
+        Iterator<Map.Entry<Integer, T>> iterator = rest.entrySet().iterator();
+        int lastId = 0;
+        while (items.size() < limit && iterator.hasNext()) {
+            Map.Entry<Integer, T> entry = iterator.next();
+            lastId = entry.getKey();
+            items.add(entry.getValue());
+        }
+        return new Page<>(items, iterator.hasNext() ? Page.encodeCursor(lastId) : null);
+    }
+
     // Получает задачу, эпик или подзадачу по переданному id
     @Override
     public Task getTaskById(int taskId) {
-        Task foundTask;
-        if (taskList.containsKey(taskId)) {
-            foundTask = taskList.get(taskId);
-        } else if (subTaskList.containsKey(taskId)) {
-            foundTask = subTaskList.get(taskId);
-        } else if (epicList.containsKey(taskId)) {
-            foundTask = epicList.get(taskId);
-        } else {
+        return getTaskById(taskId, null);
+    }
+
+    // Получает задачу по id, просмотр записывается в историю клиента sessionId
+    @Override
+    public Task getTaskById(int taskId, String sessionId) {
+        Task foundTask = taskIndex.get(taskId);
+        if (foundTask == null) {
             System.out.println("Задачи с id " + taskId + " не найдено");
             throw new TaskNotFoundException("Задачи с id " + taskId + " не существует");
         }
-        if (foundTask != null) {
-            historyManager.add(foundTask);
-        }
+        historyManager.add(sessionId, foundTask);
         return foundTask;
     }
 
+    // Ищет задачу, эпик или подзадачу по id без записи в историю просмотров, null - если не найдена
+    protected Task findTask(int taskId) {
+        return taskIndex.get(taskId);
+    }
+
+    // Вставляет или заменяет уже проверенную задачу при восстановлении состояния:
+    // без проверки пересечений по времени и без записи в историю просмотров
+    protected void restoreTask(Task task) {
+        if (task == null) return;
+        switch (task.getType()) {
+            case EPIC:
+                Epic existingEpic = epicList.get(task.getId());
+                if (existingEpic != null) {
+                    // подзадачи остаются привязанными к существующему эпику
+                    existingEpic.setName(task.getName());
+                    existingEpic.setDescription(task.getDescription());
+                    searchIndex.put(existingEpic);
+                } else {
+                    epicList.put(task.getId(), (Epic) task);
+                    indexTask(task);
+                }
+                break;
+            case SUBTASK:
+                SubTask subTask = (SubTask) task;
+                SubTask oldSubTask = subTaskList.put(subTask.getId(), subTask);
+                replaceIndexed(oldSubTask, subTask);
+                if (oldSubTask != null) {
+                    unprioritize(oldSubTask);
+                    oldSubTask.getParentTask().deleteSubTask(oldSubTask);
+                }
+                subTask.getParentTask().addSubTask(subTask);
+                prioritize(subTask);
+                break;
+            default:
+                Task oldTask = taskList.put(task.getId(), task);
+                replaceIndexed(oldTask, task);
+                if (oldTask != null) {
+                    unprioritize(oldTask);
+                }
+                prioritize(task);
+        }
+        reindex(task.getId());
+    }
+
+    // Вставляет за один проход набор уже проверенных задач при загрузке из файла:
+    // без проверки пересечений по времени и без записи в историю просмотров.
+    // Подзадачи добавляются в эпики группами, приоритизированный список пополняется после вставки всех задач
+    protected void restoreTasks(Collection<? extends Task> tasks) {
+        Map<Epic, List<SubTask>> epicSubTasks = new HashMap<>();
+        List<Task> timedTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task == null) continue;
+            if (findTask(task.getId()) != null) {
+                // задача уже есть в менеджере - заменяем по одной
+                restoreTask(task);
+                continue;
+            }
+            switch (task.getType()) {
+                case EPIC:
+                    epicList.put(task.getId(), (Epic) task);
+                    break;
+                case SUBTASK:
+                    SubTask subTask = (SubTask) task;
+                    subTaskList.put(subTask.getId(), subTask);
+                    epicSubTasks.computeIfAbsent(subTask.getParentTask(), epic -> new ArrayList<>()).add(subTask);
+                    if (subTask.getStartTime() != null) timedTasks.add(subTask);
+                    break;
+                default:
+                    taskList.put(task.getId(), task);
+                    if (task.getStartTime() != null) timedTasks.add(task);
+            }
+            taskIndex.put(task.getId(), task);
+            indexTask(task);
+        }
+        epicSubTasks.forEach(Epic::addSubTasks);
+        timedTasks.forEach(this::prioritize);
+    }
+
     // Удаляет задачу, эпик или подзадачу по переданному id
     @Override
     public void deleteTaskById(int taskId) {
         if (taskList.containsKey(taskId)) {
             historyManager.remove(taskId);
             Task deletedTask = taskList.remove(taskId);
-            prioritizedTaskList.remove(deletedTask);
+            reindex(taskId);
+            unindexTask(deletedTask);
+            unprioritize(deletedTask);
             deletedTask.clearData();
         } else if (subTaskList.containsKey(taskId)) {
             // Получаем подзадачу, eё эпик, удаляем подзадачу в эпике, затем в списке.
@@ -125,21 +397,28 @@ public class InMemoryTaskManager implements TaskManager {
             Epic epic = subTask.getParentTask();
             epic.deleteSubTask(subTask);
             historyManager.remove(taskId);
+            unprioritize(subTask);
+            unindexTask(subTask);
             subTaskList.remove(taskId).clearData();
-            prioritizedTaskList.remove(subTask);
+            reindex(taskId);
         } else if (epicList.containsKey(taskId)) {
             // Получаем эпик, удаляем все подзадачи эпика в списке, затем удаляем подзадачи в эпике.
             Epic epic = epicList.get(taskId);
 
             epic.getSubTasks().forEach(subTask -> {
                 historyManager.remove(subTask.getId());
-                prioritizedTaskList.remove(subTask);
-                subTaskList.remove(subTask.getId()).clearData();
+                unprioritize(subTask);
+                unindexTask(subTask);
+                int subTaskId = subTask.getId();
+                subTaskList.remove(subTaskId).clearData();
+                reindex(subTaskId);
             });
 
             epic.deleteAllSubTasks();
             historyManager.remove(taskId);
+            unindexTask(epic);
             epicList.remove(taskId).clearData();
+            reindex(taskId);
         } else {
             System.out.println("Попытка удаления несуществующей задачи с id " + taskId);
         }
@@ -148,73 +427,79 @@ public class InMemoryTaskManager implements TaskManager {
     // Удаляет все задачи
     @Override
     public void deleteAllTasks() {
+        List<Integer> taskIds = new ArrayList<>(taskList.keySet());
         taskList.values().forEach(task -> {
             historyManager.remove(task.getId());
-            prioritizedTaskList.remove(task);
+            unprioritize(task);
+            unindexTask(task);
             task.clearData();
         });
         taskList.clear();
+        taskIds.forEach(this::reindex);
     }
 
     // Удаляет все подзадачи
     @Override
     public void deleteAllSubTasks() {
         epicList.values().forEach(Epic::deleteAllSubTasks);
+        List<Integer> subTaskIds = new ArrayList<>(subTaskList.keySet());
         subTaskList.values().forEach(subTask -> {
             historyManager.remove(subTask.getId());
-            prioritizedTaskList.remove(subTask);
+            unprioritize(subTask);
+            unindexTask(subTask);
             subTask.clearData();
         });
         subTaskList.clear();
+        subTaskIds.forEach(this::reindex);
     }
 
     // Удаляет все эпики (вместе с подзадачами)
     @Override
     public void deleteAllEpics() {
         deleteAllSubTasks();
+        List<Integer> epicIds = new ArrayList<>(epicList.keySet());
         epicList.values().forEach(epic -> {
             historyManager.remove(epic.getId());
+            unindexTask(epic);
             epic.clearData();
         });
         epicList.clear();
+        epicIds.forEach(this::reindex);
     }
 
     // Создает новый объект Task
     @Override
     public Task createNewTask(String name, String description) {
-        taskCounter++;
-        return new Task(taskCounter, name, description);
+        return new Task(nextTaskId(), name, description);
     }
 
     @Override
     public Task createNewTask(String name, String description, LocalDateTime startTime, Duration duration) {
-        taskCounter++;
-        return new Task(taskCounter, name, description, startTime, duration);
+        return new Task(nextTaskId(), name, description, startTime, duration);
     }
 
     // Создает новый объект Epic
     @Override
     public Epic createNewEpic(String name, String description) {
-        taskCounter++;
-        return new Epic(taskCounter, name, description);
+        return new Epic(nextTaskId(), name, description);
     }
 
     // Создает новый объект SubTask
     @Override
     public SubTask createNewSubtask(Epic epic, String name, String description) {
-        taskCounter++;
-        return new SubTask(epic, taskCounter, name, description);
+        return new SubTask(epic, nextTaskId(), name, description);
     }
 
     @Override
     public SubTask createNewSubtask(Epic epic, String name, String description, LocalDateTime startTime, Duration duration) {
-        taskCounter++;
-        return new SubTask(epic, taskCounter, name, description, startTime, duration);
+        return new SubTask(epic, nextTaskId(), name, description, startTime, duration);
     }
 
-    // Проверяет пересечение задачи по времени выполнения с другими задачами из приоритизированного списка
+    // Проверяет пересечение задачи по времени выполнения с другими задачами из приоритизированного списка.
+    // Дерево интервалов просматривает только поддеревья, где пересечение возможно
     private void checkTimeInterference(Task task) {
-        if (prioritizedTaskList.stream().anyMatch(existingTask -> tasksInterfere(task, existingTask))) {
+        if (task.getStartTime() != null
+                && timeIntervals.overlaps(task.getStartTime(), task.getEndTime(), task.getId())) {
             throw new TaskTimeInterferenceException("Есть пересечения по времени с другой задачей");
         }
     }
@@ -224,7 +509,8 @@ public class InMemoryTaskManager implements TaskManager {
     public void addTask(Task task) {
         if (task != null && task.getClass().equals(Task.class)) {
             checkTimeInterference(task); // проверка пересечения по времени с другими задачами
-            taskList.put(task.getId(), task);
+            replaceIndexed(taskList.put(task.getId(), task), task);
+            reindex(task.getId());
             prioritize(task);
         } else {
             System.out.println("Попытка добавить null-задачу или задачу неподходящего типа.");
@@ -235,20 +521,30 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void addEpic(Epic epic) {
         if (epic != null) {
-            epicList.put(epic.getId(), epic);
+            replaceIndexed(epicList.put(epic.getId(), epic), epic);
+            reindex(epic.getId());
         } else {
             System.out.println("Попытка добавить null в качестве эпика.");
         }
     }
 
+    // Добавляет подзадачу в списки, индексы и приоритизированный список менеджера, не затрагивая ее эпик.
+    // При checkTime сначала проверяет пересечение по времени с другими задачами
+    protected void storeSubTask(SubTask subTask, boolean checkTime) {
+        if (checkTime) {
+            checkTimeInterference(subTask);
+        }
+        replaceIndexed(subTaskList.put(subTask.getId(), subTask), subTask);
+        reindex(subTask.getId());
+        prioritize(subTask);
+    }
+
     // Добавляет подзадачу в список
     @Override
     public void addSubTask(SubTask subTask) {
         if (subTask != null) {
-            checkTimeInterference(subTask); // проверка пересечения по времени с другими задачами
-            subTaskList.put(subTask.getId(), subTask);
+            storeSubTask(subTask, true); // с проверкой пересечения по времени с другими задачами
             subTask.getParentTask().addSubTask(subTask);
-            prioritize(subTask);
         } else {
             System.out.println("Попытка добавить подзадачу null");
         }
@@ -258,7 +554,8 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void updateTask(Task task) {
         if (task != null) {
-            taskList.put(task.getId(), task);
+            replaceIndexed(taskList.put(task.getId(), task), task);
+            reindex(task.getId());
             prioritize(task);
         } else {
             System.out.println("Попытка добавить задачу null");
@@ -270,7 +567,8 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void updateEpic(Epic epic) {
         if (epic != null) {
-            epicList.put(epic.getId(), epic);
+            replaceIndexed(epicList.put(epic.getId(), epic), epic);
+            reindex(epic.getId());
         } else {
             System.out.println("Попытка добавить эпик null");
         }
@@ -280,9 +578,8 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void updateSubTask(SubTask subTask) {
         if (subTask != null) {
-            subTaskList.put(subTask.getId(), subTask);
+            storeSubTask(subTask, false);
             subTask.getParentTask().addSubTask(subTask);
-            prioritize(subTask);
         } else {
             System.out.println("Попытка добавить подзадачу null");
         }
@@ -294,4 +591,10 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    // Возвращает историю просмотров клиента sessionId
+    @Override
+    public List<Task> getHistory(String sessionId) {
+        return historyManager.getHistory(sessionId);
+    }
+
 }
@@ -1,14 +1,47 @@
 package dc.yandex.kanban.service;
 
+import java.time.Duration;
+
 public class Managers {
 
+    public static final int DEFAULT_HISTORY_SIZE = 1000; // размер истории просмотров по умолчанию
+    public static final int SESSION_HISTORY_SIZE = 100; // размер истории просмотров одного клиента
+    public static final int MAX_SESSIONS = 10_000; // наибольшее количество сессий клиентов
+    public static final Duration SESSION_IDLE_TIMEOUT = Duration.ofMinutes(30); // простой до удаления сессии
+
     // Возвращает менеджер задач по умолчанию
     public static TaskManager getDefault() {
         return new InMemoryTaskManager();
     }
 
-    // Возвращает менеджер истории просмотров по умолчанию
+    // Возвращает менеджер задач с компактным хранением в массивах примитивов - для большого числа задач
+    public static TaskManager getCompact() {
+        return new CompactTaskManager();
+    }
+
+    // Возвращает менеджер задач, который можно использовать одновременно из нескольких потоков
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
+    // Возвращает менеджер истории просмотров по умолчанию: не больше DEFAULT_HISTORY_SIZE последних просмотров
     public static HistoryManager getDefaultHistory() {
-        return new InMemoryHistoryManager();
+        return getDefaultHistory(DEFAULT_HISTORY_SIZE);
+    }
+
+    // Возвращает историю просмотров не больше чем из maxSize задач
+    public static HistoryManager getDefaultHistory(int maxSize) {
+        return getDefaultHistory(maxSize, InMemoryHistoryManager.UNLIMITED);
+    }
+
+    // Возвращает историю просмотров, ограниченную количеством задач и оценкой занятой памяти в байтах.
+    // InMemoryHistoryManager.UNLIMITED снимает соответствующее ограничение
+    public static HistoryManager getDefaultHistory(int maxSize, long maxBytes) {
+        return new InMemoryHistoryManager(maxSize, maxBytes);
+    }
+
+    // Возвращает историю просмотров, раздельную для каждого клиента, с удалением простаивающих сессий
+    public static HistoryManager getSessionHistory() {
+        return new SessionHistoryManager(SESSION_HISTORY_SIZE, MAX_SESSIONS, SESSION_IDLE_TIMEOUT);
     }
 }
@@ -11,11 +11,19 @@ public class Node {
     private Node prev; // ссылка на предыдущий узел
     private Node next; // ссылка на следующий узел
     private Task value; // хранимое значение
+    private final int key; // id задачи на момент добавления - по нему узел удаляется из мапа истории
+    private final long bytes; // оценка памяти, занятой узлом
 
     public Node(Node prev, Node next, Task value) {
+        this(prev, next, value, value.getId(), 0);
+    }
+
+    public Node(Node prev, Node next, Task value, int key, long bytes) {
         this.prev = prev;
         this.next = next;
         this.value = value;
+        this.key = key;
+        this.bytes = bytes;
     }
 
     public Node getPrev() {
@@ -42,6 +50,14 @@ public class Node {
         this.value = value;
     }
 
+    public int getKey() {
+        return key;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,58 @@
+/*
+Страница списка задач, упорядоченного по id.
+Курсор следующей страницы непрозрачен для клиента: это закодированный id последней задачи страницы
+*/
+package dc.yandex.kanban.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+public class Page<T> {
+
+    private static final String cursorPrefix = "id:";
+
+    private final List<T> items;
+    private final String nextCursor; // null - если это последняя страница
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    // Кодирует id последней задачи страницы в курсор
+    public static String encodeCursor(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((cursorPrefix + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Возвращает id, после которого начинается страница. Бросает IllegalArgumentException для чужого курсора
+    public static int decodeCursor(String cursor) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor, e);
+        }
+        if (!value.startsWith(cursorPrefix)) {
+            throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor);
+        }
+        try {
+            return Integer.parseInt(value.substring(cursorPrefix.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+История просмотров, сохраняемая в файл.
+Каждое добавление и удаление дописывается в файл одной короткой записью с id задачи,
+при загрузке записи применяются за один проход. Когда устаревших записей становится
+слишком много, файл переписывается текущим списком id.
+Наличие задачи в истории проверяется по вложенной истории: ограниченная история сама вытесняет давние просмотры,
+и отдельный список id разошелся бы с ней
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.exceptions.ManagerSaveException;
+import dc.yandex.kanban.service.storage.DurabilityPolicy;
+import dc.yandex.kanban.service.storage.PersistenceStats;
+import dc.yandex.kanban.service.storage.TaskJournal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.IntFunction;
+
+public class PersistentHistoryManager implements HistoryManager {
+
+    private static final String RECORD_ADD = "A";
+    private static final String RECORD_REMOVE = "R";
+    private static final String delimiter = ",";
+    private static final String tempSuffix = ".tmp";
+    private static final int MIN_COMPACTION_RECORDS = 1000; // меньше этого числа записей файл не переписывается
+
+    private final HistoryManager delegate; // история в памяти
+    private final Path path; // файл истории
+    private final PersistenceStats stats;
+    private final StringBuilder record; // переиспользуемый буфер записи
+    private TaskJournal journal; // открыт после reset() или restore()
+
+    public PersistentHistoryManager(HistoryManager delegate, Path path) {
+        this.delegate = delegate;
+        this.path = path;
+        this.stats = new PersistenceStats();
+        this.record = new StringBuilder(16);
+    }
+
+    public PersistenceStats getPersistenceStats() {
+        return stats;
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return delegate.getHistory();
+    }
+
+    // Добавляет задачу в историю и дописывает запись в файл
+    @Override
+    public synchronized void add(Task task) {
+        if (task == null) return;
+        delegate.add(task);
+        append(RECORD_ADD, task.getId());
+    }
+
+    // Удаляет задачу из истории и дописывает запись в файл, если задача в истории была
+    @Override
+    public synchronized void remove(int id) {
+        if (delegate.contains(id)) {
+            delegate.remove(id);
+            append(RECORD_REMOVE, id);
+        }
+    }
+
+    // Начинает историю заново, удаляя сохраненную
+    public synchronized void reset() {
+        closeJournal();
+        journal = new TaskJournal(path, DurabilityPolicy.none(), stats);
+        journal.reset();
+    }
+
+    // Восстанавливает историю из файла за один проход. lookup возвращает задачу по id или null,
+    // если задачи больше нет. После восстановления файл переписывается без устаревших записей
+    public synchronized void restore(IntFunction<Task> lookup) {
+        closeJournal();
+        List<String> records = TaskJournal.readRecords(path);
+        LinkedHashSet<Integer> order = new LinkedHashSet<>();
+        for (String line : records) {
+            int separatorIndex = line.indexOf(delimiter);
+            if (separatorIndex < 0) continue;
+            int id;
+            try {
+                id = Integer.parseInt(line.substring(separatorIndex + 1).trim());
+            } catch (NumberFormatException e) {
+                // недописанная при сбое последняя строка
+                continue;
+            }
+            // повторный просмотр переносит задачу в конец истории
+            order.remove(id);
+            if (line.startsWith(RECORD_ADD)) {
+                order.add(id);
+            }
+        }
+        for (int id : order) {
+            Task task = lookup.apply(id);
+            if (task != null) {
+                delegate.add(task);
+            }
+        }
+        if (records.size() != delegate.size()) {
+            rewrite();
+        }
+        journal = new TaskJournal(path, DurabilityPolicy.none(), stats);
+    }
+
+    public synchronized void close() {
+        closeJournal();
+    }
+
+    private void append(String operation, int id) {
+        if (journal == null) return;
+        record.setLength(0);
+        record.append(operation).append(delimiter).append(id);
+        journal.append(record);
+        if (journal.getRecordCount() >= Math.max(MIN_COMPACTION_RECORDS, 2L * delegate.size())) {
+            // в файле накопились повторные просмотры и удаления
+            closeJournal();
+            rewrite();
+            journal = new TaskJournal(path, DurabilityPolicy.none(), stats);
+        }
+    }
+
+    // Переписывает файл текущим списком id через временный файл
+    private void rewrite() {
+        Path temp = Paths.get(path + tempSuffix);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Task task : delegate.getHistory()) {
+                writer.write(RECORD_ADD + delimiter + task.getId());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи истории просмотров", e);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи истории просмотров", e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+История просмотров, раздельная для каждого клиента.
+Клиент определяется идентификатором сессии, у каждой сессии своя небольшая история с ограничением размера.
+Сессии хранятся в ConcurrentHashMap, и каждая защищена собственной блокировкой, поэтому просмотры разных клиентов
+не мешают друг другу. Просмотры без идентификатора сессии попадают в общую анонимную сессию: к ней обращаются
+все клиенты без заголовка сессии, поэтому она хранится отдельно от остальных, не удаляется при простое
+и записывает просмотры через ConcurrentHistoryManager без общей блокировки.
+Сессия, к которой не обращались дольше idleTimeout, удаляется при очередной проверке: проверка выполняется
+при обращениях к истории, не чаще одного раза за idleTimeout, и ее выполняет только один поток.
+Количество сессий ограничено maxSessions: когда новая сессия превышает ограничение, давно не использованные
+сессии удаляются пачкой, чтобы сортировка сессий по времени обращения выполнялась не при каждом создании.
+Удаляет сессии один поток, поэтому при одновременном создании сессий ограничение может ненадолго превышаться.
+Обратный индекс (id задачи - сессии, в истории которых она есть) позволяет удалять задачу только из этих сессий.
+Задачи, удаленные из менеджера (с id 0), в историю не попадают.
+Просмотр записывается после поиска задачи, без блокировки менеджера, поэтому может прийти уже после удаления задачи.
+Удаление запоминает id задачи, а просмотр после записи в историю и индекс проверяет эту отметку и убирает
+удаленную задачу обратно. Отметки хранятся не меньше idleTimeout и очищаются вместе с простаивающими сессиями
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+public class SessionHistoryManager implements HistoryManager {
+    public static final String ANONYMOUS_SESSION = ""; // сессия просмотров без идентификатора клиента
+    private static final int EVICTION_BATCH_DIVISOR = 10; // сверх ограничения удаляется десятая часть сессий
+
+    private final Map<String, Session> sessions;
+    private final Map<Integer, Set<Session>> taskSessions; // сессии, в истории которых есть задача, по id задачи
+    private final Map<Integer, Long> removedTasks; // время удаления задачи по ее id
+    private final HistoryManager anonymous; // история просмотров без идентификатора сессии
+    private final int sessionSize; // наибольшее количество задач в истории одной сессии
+    private final int maxSessions; // наибольшее количество сессий клиентов
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoTime; // источник времени, в тестах подменяется
+    private final AtomicLong nextExpiryCheck; // время следующей проверки простаивающих сессий
+    private final AtomicBoolean evicting; // сессии сверх ограничения удаляет один поток
+
+    public SessionHistoryManager(int sessionSize, int maxSessions, Duration idleTimeout) {
+        this(sessionSize, maxSessions, idleTimeout, System::nanoTime);
+    }
+
+    SessionHistoryManager(int sessionSize, int maxSessions, Duration idleTimeout, LongSupplier nanoTime) {
+        if (sessionSize <= 0) {
+            throw new IllegalArgumentException("Размер истории сессии должен быть положительным");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("Количество сессий должно быть положительным");
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Время простоя сессии должно быть положительным");
+        }
+        this.sessions = new ConcurrentHashMap<>();
+        this.taskSessions = new ConcurrentHashMap<>();
+        this.removedTasks = new ConcurrentHashMap<>();
+        this.anonymous = new ConcurrentHistoryManager(new InMemoryHistoryManager(sessionSize));
+        this.sessionSize = sessionSize;
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nanoTime = nanoTime;
+        this.nextExpiryCheck = new AtomicLong(nanoTime.getAsLong() + idleTimeoutNanos);
+        this.evicting = new AtomicBoolean();
+    }
+
+    // Добавляет задачу в анонимную сессию
+    @Override
+    public void add(Task task) {
+        add(ANONYMOUS_SESSION, task);
+    }
+
+    // Добавляет задачу в историю сессии, при первом просмотре сессия создается
+    @Override
+    public void add(String sessionId, Task task) {
+        if (task == null) return;
+        String key = sessionKey(sessionId);
+        if (key.equals(ANONYMOUS_SESSION)) {
+            anonymous.add(task);
+            if (removedTasks.containsKey(task.getId())) {
+                anonymous.remove(task.getId());
+            }
+            return;
+        }
+        long now = nanoTime.getAsLong();
+        boolean created = false;
+        while (true) {
+            Session session = sessions.get(key);
+            if (session == null) {
+                Session newSession = new Session(sessionSize, now);
+                session = sessions.putIfAbsent(key, newSession);
+                if (session == null) {
+                    session = newSession;
+                    created = true;
+                }
+            }
+            synchronized (session) {
+                // сессию удалили как простаивающую между поиском и блокировкой - создаем новую
+                if (session.expired) continue;
+                session.lastAccess = now;
+                addToSession(session, task);
+            }
+            break;
+        }
+        if (created && sessions.size() > maxSessions) {
+            evictLeastRecentlyUsed();
+        }
+        expireIdleSessions(now);
+    }
+
+    // Удаляет задачу из истории сессий, в которых она есть
+    @Override
+    public void remove(int id) {
+        // отметка ставится до очистки индекса: просмотр, проиндексированный после очистки, ее увидит
+        removedTasks.put(id, nanoTime.getAsLong());
+        anonymous.remove(id);
+        Set<Session> holders = taskSessions.remove(id);
+        if (holders == null) return;
+        for (Session session : holders) {
+            synchronized (session) {
+                session.history.remove(id);
+            }
+        }
+    }
+
+    // Возвращает историю анонимной сессии
+    @Override
+    public List<Task> getHistory() {
+        return getHistory(ANONYMOUS_SESSION);
+    }
+
+    // Возвращает историю сессии, для неизвестной сессии - пустой список
+    @Override
+    public List<Task> getHistory(String sessionId) {
+        String key = sessionKey(sessionId);
+        if (key.equals(ANONYMOUS_SESSION)) {
+            return anonymous.getHistory();
+        }
+        long now = nanoTime.getAsLong();
+        expireIdleSessions(now);
+        Session session = sessions.get(key);
+        if (session == null) return new ArrayList<>();
+        List<Task> history;
+        synchronized (session) {
+            if (session.expired) return new ArrayList<>();
+            session.lastAccess = now;
+            history = session.history.getHistory();
+        }
+        // задача могла быть удалена из менеджера, пока записывался ее просмотр
+        return history.stream()
+                .filter(task -> task.getId() != 0)
+                .collect(Collectors.toList());
+    }
+
+    // Количество сессий клиентов, включая еще не удаленные простаивающие, без анонимной сессии
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // Количество задач в обратном индексе - для проверки, что индекс не растет вместе с вытесненными просмотрами
+    int getIndexedTaskCount() {
+        return taskSessions.size();
+    }
+
+    // Количество отметок удаленных задач - для проверки, что отметки очищаются
+    int getRemovedTaskCount() {
+        return removedTasks.size();
+    }
+
+    private static String sessionKey(String sessionId) {
+        return sessionId == null || sessionId.isBlank() ? ANONYMOUS_SESSION : sessionId;
+    }
+
+    // Добавляет задачу в историю сессии и обновляет обратный индекс, в том числе для вытесненной задачи.
+    // Если задачу удалили, пока записывался просмотр, убирает ее из истории и индекса. Вызывается под блокировкой сессии
+    private void addToSession(Session session, Task task) {
+        int taskId = task.getId();
+        Integer evictedId = null;
+        if (!session.history.contains(taskId) && session.history.size() >= sessionSize) {
+            evictedId = session.history.getEldestId();
+        }
+        session.history.add(task);
+        if (evictedId != null) {
+            unindex(evictedId, session);
+        }
+        taskSessions.compute(taskId, (id, holders) -> {
+            Set<Session> result = holders == null ? new HashSet<>() : holders;
+            result.add(session);
+            return result;
+        });
+        // удаление, очистившее индекс раньше, оставило отметку; удаление, очищающее индекс позже,
+        // само уберет задачу из истории под блокировкой сессии
+        if (removedTasks.containsKey(taskId)) {
+            session.history.remove(taskId);
+            unindex(taskId, session);
+        }
+    }
+
+    private void unindex(int taskId, Session session) {
+        taskSessions.computeIfPresent(taskId, (id, holders) -> {
+            holders.remove(session);
+            return holders.isEmpty() ? null : holders;
+        });
+    }
+
+    // Удаляет сессию из мапа и ее задачи из обратного индекса. Вызывается под блокировкой сессии
+    private void retire(String key, Session session) {
+        session.expired = true;
+        sessions.remove(key, session);
+        for (Task task : session.history.getHistory()) {
+            unindex(task.getId(), session);
+        }
+    }
+
+    // Удаляет давно не использованные сессии сверх ограничения и еще десятую часть ограничения про запас.
+    // Если удалением уже занят другой поток, не ждет его
+    private void evictLeastRecentlyUsed() {
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            int excess = sessions.size() - maxSessions;
+            if (excess <= 0) return;
+            List<Map.Entry<String, Session>> eldest = sessions.entrySet().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                    .limit(excess + maxSessions / EVICTION_BATCH_DIVISOR)
+                    .collect(Collectors.toList());
+            for (Map.Entry<String, Session> entry : eldest) {
+                Session session = entry.getValue();
+                synchronized (session) {
+                    if (!session.expired) {
+                        retire(entry.getKey(), session);
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // Удаляет сессии, к которым не обращались дольше idleTimeout, и отметки удаленных задач старше idleTimeout.
+    // Проверку выполняет один поток, следующая проверка - не раньше чем через idleTimeout
+    private void expireIdleSessions(long now) {
+        long checkTime = nextExpiryCheck.get();
+        if (now - checkTime < 0 || !nextExpiryCheck.compareAndSet(checkTime, now + idleTimeoutNanos)) return;
+        removedTasks.values().removeIf(removedAt -> now - removedAt >= idleTimeoutNanos);
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            synchronized (session) {
+                if (!session.expired && now - session.lastAccess >= idleTimeoutNanos) {
+                    retire(entry.getKey(), session);
+                }
+            }
+        }
+    }
+
+    // История одной сессии, изменяется под блокировкой самой сессии
+    private static class Session {
+        private final InMemoryHistoryManager history;
+        private volatile long lastAccess; // время последнего обращения, читается без блокировки при удалении сессий
+        private boolean expired; // сессия удалена из мапа, писать в нее нельзя
+
+        private Session(int size, long now) {
+            this.history = new InMemoryHistoryManager(size);
+            this.lastAccess = now;
+        }
+    }
+}
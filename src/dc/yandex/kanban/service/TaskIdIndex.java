@@ -0,0 +1,122 @@
+/*
+Индекс задач всех типов по id: хеш-таблица с открытой адресацией и линейным пробированием
+на массивах примитивных ключей. Поиск не упаковывает id в Integer и не создает объектов.
+При удалении следующие записи цепочки сдвигаются назад, поэтому пометки удаленных ячеек не нужны
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+
+public class TaskIdIndex {
+
+    private static final int MIN_CAPACITY = 16; // емкость таблицы всегда степень двойки
+
+    private int[] keys;
+    private Task[] values; // null - пустая ячейка
+    private int mask; // емкость - 1
+    private int size;
+
+    public TaskIdIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Находит задачу по id, null - если ее нет
+    public Task get(int id) {
+        int slot = slotOf(id);
+        Task value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == id) return value;
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Добавляет или заменяет задачу по id, возвращает прежнюю задачу
+    public Task put(int id, Task task) {
+        int slot = slotOf(id);
+        Task value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == id) {
+                values[slot] = task;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        values[slot] = task;
+        // заполнение не больше половины, чтобы цепочки пробирования оставались короткими
+        if (++size > (mask + 1) / 2) {
+            resize((mask + 1) * 2);
+        }
+        return null;
+    }
+
+    // Удаляет задачу по id, возвращает удаленную задачу
+    public Task remove(int id) {
+        int slot = slotOf(id);
+        Task value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == id) {
+                shiftBack(slot);
+                size--;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    // Заполняет освободившуюся ячейку записями цепочки, которые не могут оставаться за ней
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) break;
+            int home = slotOf(keys[slot]);
+            // запись остается на месте, если ее исходная ячейка лежит между освободившейся и текущей
+            boolean reachable = free <= slot ? (free < home && home <= slot) : (free < home || home <= slot);
+            if (!reachable) {
+                keys[free] = keys[slot];
+                values[free] = values[slot];
+                free = slot;
+            }
+        }
+        values[free] = null;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Task[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = slotOf(oldKeys[i]);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Task[capacity];
+        mask = capacity - 1;
+    }
+
+    // Перемешивает биты id, чтобы id с общим шагом не собирались в длинные цепочки
+    private int slotOf(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
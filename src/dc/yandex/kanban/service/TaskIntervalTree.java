@@ -0,0 +1,210 @@
+/*
+Дерево интервалов времени выполнения задач: сбалансированное (АВЛ) дерево по времени начала,
+в каждом узле которого хранится наибольшее время окончания в его поддереве.
+Поиск пересечений обходит только поддеревья, в которых есть задачи, заканчивающиеся после начала интервала.
+Интервал задачи - [начало, окончание), задачи без времени начала в дерево не попадают
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+public class TaskIntervalTree {
+
+    private Entry root;
+    // узлы по id задачи: задача могла измениться после вставки, а удалять нужно по сохраненному интервалу
+    private final Map<Integer, Entry> entries;
+
+    public TaskIntervalTree() {
+        entries = new HashMap<>();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Добавляет задачу или заменяет ранее добавленную задачу с тем же id
+    public void put(Task task) {
+        remove(task.getId());
+        if (task.getStartTime() == null) return;
+        Entry entry = new Entry(task);
+        root = insert(root, entry);
+        entries.put(entry.id, entry);
+    }
+
+    // Удаляет задачу по id
+    public void remove(int taskId) {
+        Entry entry = entries.remove(taskId);
+        if (entry != null) {
+            root = delete(root, entry.start, entry.id);
+        }
+    }
+
+    // Проверяет, пересекается ли интервал [start, end) с какой-либо задачей, кроме задачи excludedId
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, int excludedId) {
+        Deque<Entry> stack = new ArrayDeque<>();
+        pushIfMayOverlap(stack, root, start);
+        while (!stack.isEmpty()) {
+            Entry node = stack.pop();
+            if (node.start.isBefore(end)) {
+                if (node.end.isAfter(start) && node.id != excludedId) return true;
+                pushIfMayOverlap(stack, node.right, start);
+            }
+            pushIfMayOverlap(stack, node.left, start);
+        }
+        return false;
+    }
+
+    // Находит самое раннее время начала не раньше notBefore, при котором интервал заданной продолжительности
+    // ни с чем не пересекается. Каждый шаг переносит начало на окончание мешающих задач,
+    // поэтому поиск стоит O((m + 1) log n), где m - число пропущенных задач
+    public LocalDateTime findFreeStart(LocalDateTime notBefore, Duration duration) {
+        LocalDateTime start = notBefore;
+        LocalDateTime blockingEnd;
+        while ((blockingEnd = latestOverlappingEnd(start, start.plus(duration))) != null) {
+            start = blockingEnd;
+        }
+        return start;
+    }
+
+    // Наибольшее время окончания среди задач, пересекающихся с интервалом [start, end), null - если таких нет
+    private LocalDateTime latestOverlappingEnd(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime latest = null;
+        Deque<Entry> stack = new ArrayDeque<>();
+        pushIfMayOverlap(stack, root, start);
+        while (!stack.isEmpty()) {
+            Entry node = stack.pop();
+            // поддерево не может сдвинуть найденное окончание
+            if (latest != null && !node.maxEnd.isAfter(latest)) continue;
+            if (node.start.isBefore(end)) {
+                if (node.end.isAfter(start) && (latest == null || node.end.isAfter(latest))) latest = node.end;
+                pushIfMayOverlap(stack, node.right, start);
+            }
+            pushIfMayOverlap(stack, node.left, start);
+        }
+        return latest;
+    }
+
+    private static void pushIfMayOverlap(Deque<Entry> stack, Entry node, LocalDateTime start) {
+        if (node != null && node.maxEnd.isAfter(start)) {
+            stack.push(node);
+        }
+    }
+
+    private static int compare(LocalDateTime start, int id, Entry node) {
+        int result = start.compareTo(node.start);
+        return result != 0 ? result : Integer.compare(id, node.id);
+    }
+
+    private static Entry insert(Entry node, Entry entry) {
+        if (node == null) return entry;
+        if (compare(entry.start, entry.id, node) < 0) {
+            node.left = insert(node.left, entry);
+        } else {
+            node.right = insert(node.right, entry);
+        }
+        return balance(node);
+    }
+
+    private static Entry delete(Entry node, LocalDateTime start, int id) {
+        if (node == null) return null;
+        int result = compare(start, id, node);
+        if (result < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (result > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+            // заменяем узел наименьшим узлом правого поддерева
+            Entry successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            successor.right = deleteMin(node.right);
+            successor.left = node.left;
+            return balance(successor);
+        }
+        return balance(node);
+    }
+
+    private static Entry deleteMin(Entry node) {
+        if (node.left == null) return node.right;
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    // Восстанавливает баланс узла после вставки или удаления и пересчитывает его поля
+    private static Entry balance(Entry node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Entry rotateRight(Entry node) {
+        Entry left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Entry rotateLeft(Entry node) {
+        Entry right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Entry node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) maxEnd = node.left.maxEnd;
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) maxEnd = node.right.maxEnd;
+        node.maxEnd = maxEnd;
+    }
+
+    private static int height(Entry node) {
+        return node == null ? 0 : node.height;
+    }
+
+    // Узел дерева с интервалом задачи на момент вставки
+    private static class Entry {
+        private final int id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd; // наибольшее время окончания в поддереве
+        private int height;
+        private Entry left;
+        private Entry right;
+
+        private Entry(Task task) {
+            this.id = task.getId();
+            this.start = task.getStartTime();
+            this.end = task.getEndTime();
+            this.maxEnd = end;
+            this.height = 1;
+        }
+    }
+}
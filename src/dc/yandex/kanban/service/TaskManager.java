@@ -3,10 +3,13 @@ package dc.yandex.kanban.service;
 import dc.yandex.kanban.model.Epic;
 import dc.yandex.kanban.model.SubTask;
 import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
 import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
 public interface TaskManager {
@@ -20,15 +23,53 @@ public interface TaskManager {
     // Получает список всех подзадач
     List<SubTask> getSubTasks();
 
+    // Получает страницу обычных задач в порядке id: не больше limit задач после курсора, cursor == null - первую
+    Page<Task> getTasksPage(String cursor, int limit);
+
+    // Получает страницу эпиков в порядке id
+    Page<Epic> getEpicsPage(String cursor, int limit);
+
+    // Получает страницу подзадач в порядке id
+    Page<SubTask> getSubTasksPage(String cursor, int limit);
+
+    // Получает страницу подзадач эпика в порядке id
+    Page<SubTask> getEpicSubTasksPage(int epicId, String cursor, int limit) throws TaskNotFoundException;
+
     // Список задач/подзадач, отсортированный по времени начала
     List<Task> getPrioritizedTasks();
 
+    // Задачи/подзадачи со временем начала в интервале [from, to), отсортированные по времени начала
+    List<Task> getTasksBetween(LocalDateTime from, LocalDateTime to);
+
+    // Задачи/подзадачи, начинающиеся позже момента from, отсортированные по времени начала
+    List<Task> getTasksStartingAfter(LocalDateTime from);
+
+    // Обходит по времени начала задачи/подзадачи, начинающиеся не раньше момента from, без копирования списка
+    Iterator<Task> iterateTasksFrom(LocalDateTime from);
+
+    // Находит самое раннее время начала не раньше notBefore, при котором задача заданной продолжительности
+    // не пересекается по времени с другими задачами. Продолжительность должна быть положительной
+    LocalDateTime findNextFreeSlot(Duration duration, LocalDateTime notBefore);
+
+    // Создает задачу в самом раннем свободном интервале не раньше notBefore и добавляет ее за один шаг
+    Task addTaskInFreeSlot(String name, String description, Duration duration, LocalDateTime notBefore);
+
+    // Получает задачи указанного типа с указанным статусом, при type == null - задачи всех типов
+    List<Task> getTasksByStatus(TaskStatus status, TaskType type);
+
+    // Ищет задачи, эпики и подзадачи, в названии или описании которых есть все слова запроса.
+    // Возвращает не больше limit результатов, самые релевантные - первыми
+    List<Task> search(String query, int limit);
+
     // Получает список всех подзадач эпика по id эпика
     List<SubTask> getEpicSubTasksById(int epicId);
 
     // Получает задачу, эпик или подзадачу по переданному id
     Task getTaskById(int taskId) throws TaskNotFoundException;
 
+    // Получает задачу по id и записывает просмотр только в историю клиента sessionId
+    Task getTaskById(int taskId, String sessionId) throws TaskNotFoundException;
+
     // Удаляет задачу, эпик или подзадачу по переданному id
     void deleteTaskById(int taskId);
 
@@ -74,4 +115,7 @@ public interface TaskManager {
 
     List<Task> getHistory();
 
+    // Список задач, просмотренных клиентом sessionId
+    List<Task> getHistory(String sessionId);
+
 }
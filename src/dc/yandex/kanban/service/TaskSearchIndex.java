@@ -0,0 +1,195 @@
+/*
+Инвертированный индекс для поиска задач по названию и описанию.
+Текст разбивается на слова, слова приводятся к нижнему регистру, ё заменяется на е,
+у русских слов отбрасываются типичные окончания, чтобы "задача" и "задачи" совпадали.
+Для каждого слова хранятся id задач с весом: вхождение в название весит больше, чем в описание.
+Поиск находит задачи, содержащие все слова запроса, начиная с самого редкого слова,
+и ранжирует их по сумме весов, умноженных на редкость слова (idf)
+*/
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+public class TaskSearchIndex {
+
+    private static final int NAME_WEIGHT = 3; // вес вхождения слова в название
+    private static final int DESCRIPTION_WEIGHT = 1; // вес вхождения слова в описание
+    private static final int MIN_STEM_LENGTH = 3; // окончание не отбрасывается, если основа получится короче
+    // окончания русских слов, от длинных к коротким
+    private static final String[] RUSSIAN_ENDINGS = {
+            "ами", "ями", "ого", "его", "ому", "ему", "ыми", "ими", "ать", "ять", "ить", "еть",
+            "ой", "ей", "ий", "ый", "ая", "яя", "ое", "ее", "ые", "ие", "ов", "ев", "ах", "ях", "ам", "ям", "ом", "ем",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь"
+    };
+
+    private final Map<String, Map<Integer, Integer>> postings; // слово -> id задачи -> вес
+    private final Map<Integer, Task> tasks; // проиндексированные задачи
+    private final Map<Integer, Set<String>> taskTerms; // слова каждой задачи - для удаления из индекса
+
+    public TaskSearchIndex() {
+        postings = new HashMap<>();
+        tasks = new HashMap<>();
+        taskTerms = new HashMap<>();
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    // Индексирует задачу, заменяя прежние данные задачи с тем же id
+    public void put(Task task) {
+        remove(task.getId());
+        Map<String, Integer> weights = termWeights(task.getName(), task.getDescription());
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, key -> new HashMap<>())
+                .put(task.getId(), weight));
+        tasks.put(task.getId(), task);
+        taskTerms.put(task.getId(), weights.keySet());
+    }
+
+    // Убирает задачу из индекса по id
+    public void remove(int taskId) {
+        Set<String> terms = taskTerms.remove(taskId);
+        if (terms == null) return;
+        tasks.remove(taskId);
+        for (String term : terms) {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            termPostings.remove(taskId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    // Убирает задачу из индекса, только если по ее id проиндексирована именно она
+    public void remove(Task task) {
+        if (tasks.get(task.getId()) == task) {
+            remove(task.getId());
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        tasks.clear();
+        taskTerms.clear();
+    }
+
+    // Находит задачи, содержащие все слова запроса, в порядке убывания релевантности, не больше limit
+    public List<Task> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(tokenize(query));
+        if (terms.isEmpty() || limit <= 0) return new ArrayList<>();
+        List<Map<Integer, Integer>> termPostings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Integer, Integer> found = postings.get(term);
+            if (found == null) return new ArrayList<>();
+            termPostings.add(found);
+        }
+        // кандидаты берутся из самого короткого списка, остальные списки только проверяются
+        termPostings.sort(Comparator.comparingInt(Map::size));
+        double[] idf = new double[termPostings.size()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = Math.log(1.0 + (double) tasks.size() / termPostings.get(i).size());
+        }
+
+        // в куче limit лучших результатов, на вершине худший из них
+        PriorityQueue<ScoredTask> best = new PriorityQueue<>(limit + 1);
+        for (Map.Entry<Integer, Integer> candidate : termPostings.get(0).entrySet()) {
+            int taskId = candidate.getKey();
+            double score = candidate.getValue() * idf[0];
+            boolean matches = true;
+            for (int i = 1; i < termPostings.size() && matches; i++) {
+                Integer weight = termPostings.get(i).get(taskId);
+                if (weight == null) {
+                    matches = false;
+                } else {
+                    score += weight * idf[i];
+                }
+            }
+            if (!matches) continue;
+            best.add(new ScoredTask(tasks.get(taskId), score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<ScoredTask> ranked = new ArrayList<>(best);
+        ranked.sort(Collections.reverseOrder());
+        List<Task> result = new ArrayList<>(ranked.size());
+        ranked.forEach(scored -> result.add(scored.task));
+        return result;
+    }
+
+    // Вычисляет веса слов задачи с заданными названием и описанием
+    static Map<String, Integer> termWeights(String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(name, NAME_WEIGHT, weights);
+        addTerms(description, DESCRIPTION_WEIGHT, weights);
+        return weights;
+    }
+
+    // Разбивает текст на нормализованные слова без повторов
+    static Set<String> tokenize(String text) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(text, 1, weights);
+        return weights.keySet();
+    }
+
+    // Приводит слово к виду, в котором оно хранится в индексе
+    static String normalize(String word) {
+        String term = word.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        if (!isCyrillic(term)) return term;
+        for (String ending : RUSSIAN_ENDINGS) {
+            if (term.endsWith(ending) && term.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return term.substring(0, term.length() - ending.length());
+            }
+        }
+        return term;
+    }
+
+    private static boolean isCyrillic(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.UnicodeBlock.of(term.charAt(i)) != Character.UnicodeBlock.CYRILLIC) return false;
+        }
+        return true;
+    }
+
+    // Добавляет к весам слов текста вес одного вхождения
+    private static void addTerms(String text, int weight, Map<String, Integer> weights) {
+        if (text == null) return;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                weights.merge(normalize(text.substring(start, i)), weight, Integer::sum);
+                start = -1;
+            }
+        }
+    }
+
+    // Задача с оценкой релевантности; при равной оценке выше задача с меньшим id
+    private static class ScoredTask implements Comparable<ScoredTask> {
+        private final Task task;
+        private final double score;
+
+        private ScoredTask(Task task, double score) {
+            this.task = task;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredTask other) {
+            int result = Double.compare(score, other.score);
+            return result != 0 ? result : Integer.compare(other.task.getId(), task.getId());
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package dc.yandex.kanban.service.exceptions;
 
 public class ManagerSaveException extends RuntimeException {
+    public ManagerSaveException(String message) {
+        super(message);
+    }
+
     public ManagerSaveException(String message, Exception e) {
         super(message, e);
     }
@@ -6,6 +6,7 @@ import dc.yandex.kanban.service.server.handlers.*;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
 
 public class HttpTaskServer {
 
@@ -15,6 +16,8 @@ public class HttpTaskServer {
     public static final String EPIC_END_POINT = "/epics";
     public static final String HISTORY_END_POINT = "/history";
     public static final String PRIORITIZED_END_POINT = "/prioritized";
+    public static final String SLOT_END_POINT = "/slots";
+    public static final String SEARCH_END_POINT = "/search";
     private final HttpServer httpServer;
 
     public HttpTaskServer(TaskManager manager) throws IOException {
@@ -25,6 +28,14 @@ public class HttpTaskServer {
         this.httpServer.createContext(EPIC_END_POINT, new EpicHandler(manager));
         this.httpServer.createContext(HISTORY_END_POINT, new HistoryHandler(manager));
         this.httpServer.createContext(PRIORITIZED_END_POINT, new PrioritizedHandler(manager));
+        this.httpServer.createContext(SLOT_END_POINT, new SlotHandler(manager));
+        this.httpServer.createContext(SEARCH_END_POINT, new SearchHandler(manager));
+    }
+
+    // Создает сервер, обрабатывающий запросы в потоках executor. Менеджер должен быть потокобезопасным
+    public HttpTaskServer(TaskManager manager, Executor executor) throws IOException {
+        this(manager);
+        this.httpServer.setExecutor(executor);
     }
 
     public void start() {
@@ -9,12 +9,13 @@ import dc.yandex.kanban.service.TaskManager;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServerRun {
 
     public static void main(String[] args) throws IOException {
 
-        TaskManager taskManager = Managers.getDefault();
+        TaskManager taskManager = Managers.getConcurrent();
 
         Task task = taskManager.createNewTask("задача 1", "Описание 1",
                 LocalDateTime.of(2024, 8, 4, 11, 30),
@@ -36,7 +37,8 @@ public class HttpTaskServerRun {
         taskManager.getTaskById(3);
         taskManager.getTaskById(4);
 
-        HttpTaskServer server = new HttpTaskServer(taskManager);
+        HttpTaskServer server = new HttpTaskServer(taskManager,
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
         server.start();
     }
 
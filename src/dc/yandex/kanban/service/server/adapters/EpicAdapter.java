@@ -10,6 +10,13 @@ import java.io.IOException;
 
 public class EpicAdapter extends TaskAdapter {
 
+    // Эпик может изменяться другими потоками во время сериализации,
+    // поэтому подзадачи, статус и время берутся из согласованной копии
+    @Override
+    public void write(JsonWriter jsonWriter, Task task) throws IOException {
+        super.write(jsonWriter, ((Epic) task).snapshot());
+    }
+
     @Override
     protected void writeCommonFields(JsonWriter jsonWriter, Task task) throws IOException {
         super.writeCommonFields(jsonWriter, task);
@@ -8,16 +8,28 @@ import com.sun.net.httpserver.HttpHandler;
 import dc.yandex.kanban.model.Epic;
 import dc.yandex.kanban.model.SubTask;
 import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+import dc.yandex.kanban.service.Page;
 import dc.yandex.kanban.service.TaskManager;
 import dc.yandex.kanban.service.server.adapters.*;
 
 import java.io.IOException;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
 
 public abstract class BaseHttpHandler implements HttpHandler {
 
+    protected static final int DEFAULT_PAGE_SIZE = 100; // размер страницы, если limit не передан
+    protected static final int MAX_PAGE_SIZE = 1000;
+    protected static final String NEXT_CURSOR_HEADER = "X-Next-Cursor"; // курсор следующей страницы списка
+    public static final String SESSION_HEADER = "X-Session-Id"; // идентификатор клиента для истории просмотров
+
     protected final TaskManager manager;
     protected final Gson gson;
 
@@ -112,6 +124,18 @@ public abstract class BaseHttpHandler implements HttpHandler {
         }
     }
 
+    protected void sendBadRequest(HttpExchange h, String text) {
+        try {
+            byte[] resp = text.getBytes(StandardCharsets.UTF_8);
+            h.getResponseHeaders().add("Content-Type", "text/plain;charset=utf-8");
+            h.sendResponseHeaders(400, resp.length);
+            h.getResponseBody().write(resp);
+            h.close();
+        } catch (IOException e) {
+            System.out.println("Произошла ошибка при отправке ответа:\n" + e.getMessage());
+        }
+    }
+
     protected void sendServerError(HttpExchange h, String text) {
         try {
             byte[] resp = text.getBytes(StandardCharsets.UTF_8);
@@ -124,6 +148,73 @@ public abstract class BaseHttpHandler implements HttpHandler {
         }
     }
 
+    // Разбирает параметры строки запроса вида ?name=value&name2=value2
+    protected Map<String, String> getQueryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) return parameters;
+        for (String pair : query.split("&")) {
+            int separatorIndex = pair.indexOf('=');
+            if (separatorIndex < 0) {
+                parameters.put(URLDecoder.decode(pair, StandardCharsets.UTF_8), "");
+            } else {
+                parameters.put(URLDecoder.decode(pair.substring(0, separatorIndex), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separatorIndex + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    // Возвращает идентификатор сессии клиента из заголовка X-Session-Id, null - если заголовка нет
+    protected String getSessionId(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+    }
+
+    // Проверяет, запрошена ли страница списка параметрами limit или after
+    protected boolean isPageRequested(Map<String, String> parameters) {
+        return parameters.containsKey("limit") || parameters.containsKey("after");
+    }
+
+    // Отправляет страницу списка: массив в теле ответа, курсор следующей страницы - в заголовке X-Next-Cursor
+    protected <T> void sendPage(HttpExchange exchange, Map<String, String> parameters,
+                                BiFunction<String, Integer, Page<T>> pageLoader) {
+        int limit;
+        try {
+            limit = Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+        } catch (NumberFormatException e) {
+            sendBadRequest(exchange, "Некорректное значение limit");
+            return;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            sendBadRequest(exchange, "Значение limit должно быть от 1 до " + MAX_PAGE_SIZE);
+            return;
+        }
+        String cursor = parameters.get("after");
+        Page<T> page;
+        try {
+            page = pageLoader.apply(cursor == null || cursor.isEmpty() ? null : cursor, limit);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+            return;
+        }
+        if (page.hasNext()) {
+            exchange.getResponseHeaders().add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        sendText(exchange, gson.toJson(page.getItems()));
+    }
+
+    // Отправляет задачи указанного типа с переданным в запросе статусом
+    protected void sendTasksByStatus(HttpExchange exchange, String status, TaskType type) {
+        TaskStatus taskStatus;
+        try {
+            taskStatus = TaskStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, "Неизвестный статус задачи: " + status);
+            return;
+        }
+        sendText(exchange, gson.toJson(manager.getTasksByStatus(taskStatus, type)));
+    }
+
     // Проверяет переданный json на отстутствие полей или пустые значения в них.
     protected boolean isIncorrect(JsonObject jsonObject) {
         return jsonObject.get("name") == null
@@ -14,6 +14,7 @@ import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 public class EpicHandler extends BaseHttpHandler {
 
@@ -24,6 +25,16 @@ public class EpicHandler extends BaseHttpHandler {
     @Override
     public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
         if (pathParts.length == 2) {  // выводим список эпиков
+            Map<String, String> parameters = getQueryParameters(exchange);
+            String status = parameters.get("status");
+            if (status != null) { // выводим только эпики с указанным статусом
+                sendTasksByStatus(exchange, status, TaskType.EPIC);
+                return;
+            }
+            if (isPageRequested(parameters)) { // выводим страницу списка
+                sendPage(exchange, parameters, manager::getEpicsPage);
+                return;
+            }
             List<Epic> taskList = manager.getEpics();
             String jsonData = gson.toJson(taskList);
             sendText(exchange, jsonData);
@@ -31,7 +42,7 @@ public class EpicHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.EPIC)) {
                     sendNotFound(exchange, "Эпик с id " + taskIdStr + " не найден");
                     return;
@@ -49,11 +60,17 @@ public class EpicHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.EPIC)) {
                     sendNotFound(exchange, "Эпик с id " + taskIdStr + " не найден");
                     return;
                 }
+                Map<String, String> parameters = getQueryParameters(exchange);
+                if (isPageRequested(parameters)) { // выводим страницу подзадач эпика
+                    sendPage(exchange, parameters,
+                            (cursor, limit) -> manager.getEpicSubTasksPage(taskId, cursor, limit));
+                    return;
+                }
                 List<SubTask> taskList = manager.getEpicSubTasksById(taskId);
                 String jsonData = gson.toJson(taskList);
                 sendText(exchange, jsonData);
@@ -109,7 +126,7 @@ public class EpicHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.EPIC)) {
                     sendNotFound(exchange, "Эпик с id " + taskIdStr + " не найден.");
                     return;
@@ -15,7 +15,8 @@ public class HistoryHandler extends BaseHttpHandler {
 
     @Override
     public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
-        List<Task> history = manager.getHistory();
+        // история только того клиента, который ее запросил
+        List<Task> history = manager.getHistory(getSessionId(exchange));
         String jsonData = gson.toJson(history);
         sendText(exchange, jsonData);
     }
@@ -3,9 +3,13 @@ package dc.yandex.kanban.service.server.handlers;
 import com.sun.net.httpserver.HttpExchange;
 import dc.yandex.kanban.model.Task;
 import dc.yandex.kanban.service.TaskManager;
+import dc.yandex.kanban.service.server.adapters.LocalDateTimeAdapter;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 public class PrioritizedHandler extends BaseHttpHandler {
 
@@ -13,10 +17,24 @@ public class PrioritizedHandler extends BaseHttpHandler {
         super(manager);
     }
 
+    // Без параметров возвращает весь список, с параметрами from и to - задачи, начинающиеся в интервале [from, to)
     @Override
     public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
-        List<Task> history = manager.getPrioritizedTasks();
-        String jsonData = gson.toJson(history);
+        Map<String, String> parameters = getQueryParameters(exchange);
+        List<Task> prioritized;
+        if (parameters.containsKey("from") || parameters.containsKey("to")) {
+            try {
+                LocalDateTime from = parseTime(parameters.get("from"), LocalDateTime.MIN);
+                LocalDateTime to = parseTime(parameters.get("to"), LocalDateTime.MAX);
+                prioritized = manager.getTasksBetween(from, to);
+            } catch (DateTimeParseException e) {
+                sendBadRequest(exchange, "Некорректный формат времени: " + e.getParsedString());
+                return;
+            }
+        } else {
+            prioritized = manager.getPrioritizedTasks();
+        }
+        String jsonData = gson.toJson(prioritized);
         sendText(exchange, jsonData);
     }
 
@@ -29,4 +47,9 @@ public class PrioritizedHandler extends BaseHttpHandler {
     public void handleDelete(HttpExchange exchange, String[] pathParts) throws IOException {
         sendNotFound(exchange, "HTTP-метод не поддерживается реализацией");
     }
+
+    private static LocalDateTime parseTime(String value, LocalDateTime defaultValue) {
+        if (value == null || value.isBlank()) return defaultValue;
+        return LocalDateTime.parse(value, LocalDateTimeAdapter.defaultDateTimeFormatter);
+    }
 }
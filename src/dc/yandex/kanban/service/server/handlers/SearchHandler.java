@@ -0,0 +1,53 @@
+package dc.yandex.kanban.service.server.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.TaskManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class SearchHandler extends BaseHttpHandler {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 1000;
+
+    public SearchHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    // Обрабатывает GET-запросы вида /search?q=слова запроса&limit=20
+    @Override
+    public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
+        Map<String, String> parameters = getQueryParameters(exchange);
+        String query = parameters.get("q");
+        if (query == null || query.isBlank()) {
+            sendBadRequest(exchange, "Не передан поисковый запрос q");
+            return;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(parameters.getOrDefault("limit", String.valueOf(DEFAULT_LIMIT)));
+        } catch (NumberFormatException e) {
+            sendBadRequest(exchange, "Некорректное значение limit");
+            return;
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            sendBadRequest(exchange, "Значение limit должно быть от 1 до " + MAX_LIMIT);
+            return;
+        }
+        List<Task> found = manager.search(query, limit);
+        sendText(exchange, gson.toJson(found));
+    }
+
+    @Override
+    public void handlePost(HttpExchange exchange, String[] pathParts) throws IOException {
+        sendNotFound(exchange, "HTTP-метод не поддерживается реализацией");
+    }
+
+    @Override
+    public void handleDelete(HttpExchange exchange, String[] pathParts) throws IOException {
+        sendNotFound(exchange, "HTTP-метод не поддерживается реализацией");
+    }
+}
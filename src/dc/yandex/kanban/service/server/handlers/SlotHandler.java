@@ -0,0 +1,115 @@
+package dc.yandex.kanban.service.server.handlers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.TaskManager;
+import dc.yandex.kanban.service.exceptions.TaskTimeInterferenceException;
+import dc.yandex.kanban.service.server.adapters.LocalDateTimeAdapter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+// Поиск свободного интервала для новой задачи: GET возвращает интервал, POST сразу создает в нем задачу
+public class SlotHandler extends BaseHttpHandler {
+
+    public SlotHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    // Обрабатывает GET-запросы вида /slots?duration=30&from=2024-08-04T10:00
+    @Override
+    public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
+        if (pathParts.length != 2) {
+            sendNotFound(exchange, "Такой функционал отсутствует");
+            return;
+        }
+        Map<String, String> parameters = getQueryParameters(exchange);
+        Duration duration;
+        LocalDateTime notBefore;
+        try {
+            duration = Duration.ofMinutes(Long.parseLong(parameters.getOrDefault("duration", "")));
+            notBefore = parameters.containsKey("from")
+                    ? LocalDateTime.parse(parameters.get("from"), LocalDateTimeAdapter.defaultDateTimeFormatter)
+                    : LocalDateTime.now();
+        } catch (NumberFormatException | DateTimeParseException e) {
+            sendBadRequest(exchange, "Нужны параметры duration (в минутах) и from (необязательный)");
+            return;
+        }
+        if (!isPositive(duration)) {
+            sendBadRequest(exchange, "Продолжительность должна быть положительной");
+            return;
+        }
+        LocalDateTime startTime = manager.findNextFreeSlot(duration, notBefore);
+        JsonObject slot = new JsonObject();
+        slot.add("startTime", gson.toJsonTree(startTime));
+        slot.add("endTime", gson.toJsonTree(startTime.plus(duration)));
+        slot.add("duration", gson.toJsonTree(duration));
+        sendText(exchange, gson.toJson(slot));
+    }
+
+    // Обрабатывает POST-запросы: создает задачу в ближайшем свободном интервале и возвращает ее
+    @Override
+    public void handlePost(HttpExchange exchange, String[] pathParts) throws IOException {
+        if (pathParts.length != 2) {
+            sendNotFound(exchange, "Такой функционал отсутствует");
+            return;
+        }
+        String taskData = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        JsonElement jsonElement;
+        try {
+            jsonElement = JsonParser.parseString(taskData);
+        } catch (Exception e) {
+            sendNotFound(exchange, "Передана некорректная структура");
+            return;
+        }
+        if (!jsonElement.isJsonObject() || isIncorrect(jsonElement.getAsJsonObject())) {
+            sendNotFound(exchange, "Передана некорректная структура задачи");
+            return;
+        }
+        JsonObject jsonObject = jsonElement.getAsJsonObject();
+        try {
+            Duration duration = gson.fromJson(jsonObject.get("duration"), Duration.class);
+            if (!isPositive(duration)) {
+                // задача с пустым или обратным интервалом не должна попасть в приоритизированный список
+                sendBadRequest(exchange, "Продолжительность должна быть положительной");
+                return;
+            }
+            LocalDateTime notBefore = jsonObject.has("startTime") && !jsonObject.get("startTime").isJsonNull()
+                    ? gson.fromJson(jsonObject.get("startTime"), LocalDateTime.class)
+                    : LocalDateTime.now();
+            Task task = manager.addTaskInFreeSlot(
+                    jsonObject.get("name").getAsString(),
+                    jsonObject.get("description").getAsString(),
+                    duration,
+                    notBefore);
+            sendText(exchange, gson.toJson(task));
+        } catch (TaskTimeInterferenceException e) {
+            sendHasInteraction(exchange, "Не удалось создать задачу\n" + e.getMessage());
+        } catch (Exception e) {
+            sendServerError(exchange, "Ошибка сервера: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void handleDelete(HttpExchange exchange, String[] pathParts) throws IOException {
+        sendNotFound(exchange, "HTTP-метод не поддерживается реализацией");
+    }
+
+    private static boolean isPositive(Duration duration) {
+        return duration != null && !duration.isNegative() && !duration.isZero();
+    }
+
+    @Override
+    protected boolean isIncorrect(JsonObject jsonObject) {
+        return super.isIncorrect(jsonObject)
+                || jsonObject.get("duration") == null
+                || jsonObject.get("duration").isJsonNull();
+    }
+}
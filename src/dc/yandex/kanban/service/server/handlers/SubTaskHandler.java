@@ -14,6 +14,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class SubTaskHandler extends BaseHttpHandler {
 
@@ -24,6 +25,16 @@ public class SubTaskHandler extends BaseHttpHandler {
     @Override
     public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
         if (pathParts.length == 2) {  // выводим список подзадач
+            Map<String, String> parameters = getQueryParameters(exchange);
+            String status = parameters.get("status");
+            if (status != null) { // выводим только подзадачи с указанным статусом
+                sendTasksByStatus(exchange, status, TaskType.SUBTASK);
+                return;
+            }
+            if (isPageRequested(parameters)) { // выводим страницу списка
+                sendPage(exchange, parameters, manager::getSubTasksPage);
+                return;
+            }
             List<SubTask> taskList = manager.getSubTasks();
             String jsonData = gson.toJson(taskList);
             sendText(exchange, jsonData);
@@ -31,7 +42,7 @@ public class SubTaskHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.SUBTASK)) {
                     sendNotFound(exchange, "Подзадача с id " + taskIdStr + " не найдена");
                     return;
@@ -68,7 +79,7 @@ public class SubTaskHandler extends BaseHttpHandler {
                     return;
                 }
                 int epicId = jsonObject.get("parentTask").getAsInt();
-                Task existingEpic = manager.getTaskById(epicId);
+                Task existingEpic = manager.getTaskById(epicId, getSessionId(exchange));
                 if (!existingEpic.getType().equals(TaskType.EPIC)) {
                     sendNotFound(exchange, "Эпик с id " + epicId + " не найден");
                     return;
@@ -94,7 +105,7 @@ public class SubTaskHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task existingTask = manager.getTaskById(taskId);
+                Task existingTask = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!existingTask.getType().equals(TaskType.SUBTASK)) {
                     sendNotFound(exchange, "Подзадача с id " + taskIdStr + " не найдена");
                     return;
@@ -146,7 +157,7 @@ public class SubTaskHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.SUBTASK)) {
                     sendNotFound(exchange, "Подзадача с id " + taskIdStr + " не найдена");
                     return;
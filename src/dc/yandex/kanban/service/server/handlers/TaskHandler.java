@@ -16,6 +16,7 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class TaskHandler extends BaseHttpHandler {
 
@@ -27,6 +28,16 @@ public class TaskHandler extends BaseHttpHandler {
     @Override
     public void handleGet(HttpExchange exchange, String[] pathParts) throws IOException {
         if (pathParts.length == 2) {  // выводим список задач
+            Map<String, String> parameters = getQueryParameters(exchange);
+            String status = parameters.get("status");
+            if (status != null) { // выводим только задачи с указанным статусом
+                sendTasksByStatus(exchange, status, TaskType.TASK);
+                return;
+            }
+            if (isPageRequested(parameters)) { // выводим страницу списка
+                sendPage(exchange, parameters, manager::getTasksPage);
+                return;
+            }
             List<Task> taskList = manager.getTasks();
             String jsonData = gson.toJson(taskList);
             sendText(exchange, jsonData);
@@ -34,7 +45,7 @@ public class TaskHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.TASK)) {
                     sendNotFound(exchange, "Задача с id " + taskIdStr + " не найдена");
                     return;
@@ -89,7 +100,7 @@ public class TaskHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task existingTask = manager.getTaskById(taskId);
+                Task existingTask = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!existingTask.getType().equals(TaskType.TASK)) {
                     sendNotFound(exchange, "Задача с id " + taskIdStr + " не найдена.\n");
                     return;
@@ -134,7 +145,7 @@ public class TaskHandler extends BaseHttpHandler {
             String taskIdStr = pathParts[2];
             try {
                 int taskId = Integer.parseInt(taskIdStr);
-                Task task = manager.getTaskById(taskId);
+                Task task = manager.getTaskById(taskId, getSessionId(exchange));
                 if (!task.getType().equals(TaskType.TASK)) {
                     sendNotFound(exchange, "Задача с id " + taskIdStr + " не найдена");
                     return;
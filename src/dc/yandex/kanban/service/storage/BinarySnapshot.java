@@ -0,0 +1,200 @@
+/*
+Двоичный снимок состояния менеджера задач.
+Формат (версия 2, порядок байт big-endian):
+  заголовок, 32 байта: magic 'KNBN', версия (short), флаги (short), число записей (int),
+                       число строк (int), смещение таблицы строк (long), контрольная сумма (int), резерв (int)
+  записи, по 32 байта: id (int), тип (byte), статус (byte), резерв (short), начало в минутах от эпохи (long),
+                       продолжительность в минутах (int), id эпика (int), индексы названия и описания (int, int)
+  таблица строк: для каждой строки длина в байтах UTF-8 (int, -1 для null) и сами байты
+Контрольная сумма CRC32C считается по всем байтам после заголовка, в версии 1 она не записывалась.
+Файл читается через MappedByteBuffer без разбора текста.
+*/
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+public class BinarySnapshot {
+
+    public static final int MAGIC = 0x4B4E424E; // 'KNBN'
+    public static final short VERSION = 2; // с версии 2 в заголовке записывается контрольная сумма
+    private static final short VERSION_WITHOUT_CHECKSUM = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 32;
+
+    private static final long NO_START_TIME = Long.MIN_VALUE; // время начала не задано
+    private static final int NO_DURATION = Integer.MIN_VALUE; // продолжительность не задана
+    private static final int NO_STRING = -1; // строка null
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final TaskStatus[] TASK_STATUSES = TaskStatus.values();
+
+    private BinarySnapshot() {
+    }
+
+    // Проверяет, что файл начинается с сигнатуры двоичного снимка
+    public static boolean isBinarySnapshot(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) return false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // читаем сигнатуру целиком
+            }
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    // Записывает задачи в двоичный снимок
+    public static void write(FileChannel channel, List<TaskRecord> tasks) throws IOException {
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+
+        channel.position(HEADER_SIZE);
+        CRC32C checksum = new CRC32C();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), checksum)));
+        for (TaskRecord task : tasks) {
+            out.writeInt(task.getId());
+            out.writeByte(task.getType().ordinal());
+            out.writeByte(task.getStatus().ordinal());
+            out.writeShort(0);
+            out.writeLong(task.getStartTime() == null ? NO_START_TIME : toEpochMinute(task.getStartTime()));
+            out.writeInt(task.getDuration() == null ? NO_DURATION : Math.toIntExact(task.getDuration().toMinutes()));
+            out.writeInt(task.getEpicId());
+            out.writeInt(indexOf(task.getName(), stringIndexes, strings));
+            out.writeInt(indexOf(task.getDescription(), stringIndexes, strings));
+        }
+        long stringTableOffset = HEADER_SIZE + (long) tasks.size() * RECORD_SIZE;
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(tasks.size())
+                .putInt(strings.size())
+                .putLong(stringTableOffset)
+                .putInt((int) checksum.getValue())
+                .putInt(0)
+                .flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    // Читает записи задач из двоичного снимка в порядке записи
+    public static List<TaskRecord> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Файл " + path + " не является двоичным снимком");
+            }
+            short version = buffer.getShort(4);
+            if (version != VERSION && version != VERSION_WITHOUT_CHECKSUM) {
+                throw new IOException("Неподдерживаемая версия двоичного снимка: " + version);
+            }
+            if (version == VERSION) {
+                CRC32C checksum = new CRC32C();
+                checksum.update(buffer.duplicate().position(HEADER_SIZE));
+                if ((int) checksum.getValue() != buffer.getInt(24)) {
+                    throw new IOException("Не совпадает контрольная сумма двоичного снимка " + path);
+                }
+            }
+            int recordCount = buffer.getInt(8);
+            int stringCount = buffer.getInt(12);
+            long stringTableOffset = buffer.getLong(16);
+            if (stringTableOffset != HEADER_SIZE + (long) recordCount * RECORD_SIZE
+                    || stringTableOffset > buffer.limit()) {
+                throw new IOException("Поврежден заголовок двоичного снимка " + path);
+            }
+
+            String[] strings = readStrings(buffer, (int) stringTableOffset, stringCount);
+            List<TaskRecord> tasks = new ArrayList<>(recordCount);
+            for (int i = 0; i < recordCount; i++) {
+                tasks.add(readRecord(buffer, HEADER_SIZE + i * RECORD_SIZE, strings));
+            }
+            return tasks;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | BufferUnderflowException e) {
+            throw new IOException("Поврежден двоичный снимок " + path, e);
+        }
+    }
+
+    private static TaskRecord readRecord(ByteBuffer buffer, int offset, String[] strings) {
+        long startMinute = buffer.getLong(offset + 8);
+        int durationMinutes = buffer.getInt(offset + 16);
+        return new TaskRecord(
+                buffer.getInt(offset),
+                TASK_TYPES[buffer.get(offset + 4)],
+                TASK_STATUSES[buffer.get(offset + 5)],
+                startMinute == NO_START_TIME ? null : fromEpochMinute(startMinute),
+                durationMinutes == NO_DURATION ? null : Duration.ofMinutes(durationMinutes),
+                buffer.getInt(offset + 20),
+                stringAt(strings, buffer.getInt(offset + 24)),
+                stringAt(strings, buffer.getInt(offset + 28)));
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int offset, int count) {
+        String[] strings = new String[count];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < count; i++) {
+            int length = view.getInt();
+            if (length == NO_STRING) continue;
+            if (bytes.length < length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            view.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    // Возвращает индекс строки в таблице, добавляя ее при первом появлении
+    private static int indexOf(String value, Map<String, Integer> stringIndexes, List<String> strings) {
+        if (value == null) return NO_STRING;
+        Integer index = stringIndexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+Фоновый поток записи, объединяющий серии изменений в одну запись.
+Изменения только отмечаются счетчиком версий, поток выполняет действие записи для последней отмеченной версии
+*/
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.service.exceptions.ManagerSaveException;
+
+public class CoalescingWriter implements AutoCloseable {
+
+    private final Runnable writeAction; // записывает текущее состояние целиком
+    private final long delayMillis; // сколько ждать новых изменений перед записью
+    private final PersistenceStats stats;
+    private final Thread thread;
+
+    // Состояние защищено lock
+    private final Object lock = new Object();
+    private long requestedVersion; // версия последнего отмеченного изменения
+    private long persistedVersion; // версия, для которой запись завершена
+    private boolean flushRequested; // запись нужна без задержки
+    private boolean closed;
+    private RuntimeException lastError; // ошибка последней записи, null - если она успешна
+
+    public CoalescingWriter(String threadName, Runnable writeAction, long delayMillis, PersistenceStats stats) {
+        this.writeAction = writeAction;
+        this.delayMillis = delayMillis;
+        this.stats = stats;
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Отмечает изменение состояния и сразу возвращает управление
+    public void markDirty() {
+        synchronized (lock) {
+            if (closed) {
+                throw new ManagerSaveException("Запись состояния уже остановлена");
+            }
+            requestedVersion++;
+            lock.notifyAll();
+        }
+    }
+
+    // Запускает запись без задержки и дожидается сохранения всех отмеченных изменений
+    public void flush() {
+        synchronized (lock) {
+            if (persistedVersion < requestedVersion) {
+                flushRequested = true;
+                lock.notifyAll();
+            }
+        }
+        awaitPersisted();
+    }
+
+    // Дожидается сохранения всех изменений, отмеченных до вызова
+    public void awaitPersisted() {
+        synchronized (lock) {
+            long target = requestedVersion;
+            while (persistedVersion < target) {
+                if (!thread.isAlive()) {
+                    throw new ManagerSaveException("Поток записи состояния остановлен");
+                }
+                // поток мог завершиться, не оповестив ожидающих, поэтому ждем с таймаутом
+                waitOnLock(50);
+            }
+            if (lastError != null) {
+                throw new ManagerSaveException("Ошибка фоновой записи состояния", lastError);
+            }
+        }
+    }
+
+    // Записывает оставшиеся изменения и останавливает поток
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long target;
+            long previous;
+            synchronized (lock) {
+                while (!closed && persistedVersion == requestedVersion) {
+                    waitOnLock(0);
+                }
+                if (persistedVersion == requestedVersion) {
+                    return; // закрыт и все записано
+                }
+                // ждем, пока серия изменений закончится, но не дольше задержки
+                long deadline = System.nanoTime() + delayMillis * 1_000_000L;
+                long remaining;
+                while (!closed && !flushRequested && (remaining = deadline - System.nanoTime()) > 0) {
+                    waitOnLock(Math.max(1, remaining / 1_000_000L));
+                }
+                flushRequested = false;
+                target = requestedVersion;
+                previous = persistedVersion;
+            }
+            RuntimeException error = null;
+            try {
+                writeAction.run();
+                stats.recordCoalescedWrite(target - previous);
+            } catch (RuntimeException e) {
+                System.out.println("Ошибка фоновой записи состояния: " + e.getMessage());
+                error = e;
+            }
+            synchronized (lock) {
+                persistedVersion = target;
+                lastError = error;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void waitOnLock(long millis) {
+        try {
+            lock.wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание записи состояния прервано", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+Снимок состояния менеджера в формате CSV.
+В конце строки заголовка записывается контрольная сумма CRC32C всех строк задач.
+Без проверки читаются только файлы с прежним заголовком без контрольной суммы (записанные до ее появления).
+Пустой файл или файл с другим заголовком, например оборванный внутри заголовка, считается поврежденным
+*/
+package dc.yandex.kanban.service.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class CsvSnapshot {
+
+    private static final String CHECKSUM_PREFIX = ",crc32c=";
+    private static final int CHECKSUM_LENGTH = 8; // шестнадцатеричных цифр
+    private static final int MAX_HEADER_LENGTH = 1024;
+
+    private CsvSnapshot() {
+    }
+
+    // Записывает заголовок с контрольной суммой и строки задач
+    public static void write(FileChannel channel, List<TaskRecord> records) throws IOException {
+        int headerLength = header(0).length();
+        // строки задач пишутся после места под заголовок, заголовок - после подсчета суммы
+        channel.position(headerLength);
+        CRC32C checksum = new CRC32C();
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new CheckedOutputStream(Channels.newOutputStream(channel), checksum), StandardCharsets.UTF_8));
+        TaskCsvCodec codec = new TaskCsvCodec();
+        for (TaskRecord record : records) {
+            codec.write(record, writer);
+        }
+        writer.flush();
+        ByteBuffer header = ByteBuffer.wrap(header(checksum.getValue()).getBytes(StandardCharsets.US_ASCII));
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    // Читает строки задач, проверяя контрольную сумму. Несовпадение суммы - признак поврежденного файла
+    public static List<TaskRecord> read(Path path) throws IOException {
+        List<TaskRecord> records = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            String header = readHeader(in, path);
+            CRC32C checksum = new CRC32C();
+            new TaskCsvCodec().readRows(new InputStreamReader(new CheckedInputStream(in, checksum),
+                    StandardCharsets.UTF_8), records::add);
+            if (header.startsWith(TaskCsvCodec.HEADER + CHECKSUM_PREFIX)) {
+                long expected = parseChecksum(header, TaskCsvCodec.HEADER.length() + CHECKSUM_PREFIX.length(), path);
+                if (expected != checksum.getValue()) {
+                    throw new IOException("Не совпадает контрольная сумма файла " + path);
+                }
+            } else if (header.isEmpty()) {
+                throw new IOException("Файл " + path + " пуст");
+            } else if (!header.equals(TaskCsvCodec.HEADER)) {
+                throw new IOException("Некорректный заголовок файла " + path);
+            }
+        }
+        return records;
+    }
+
+    private static String header(long checksum) {
+        String value = Long.toHexString(checksum);
+        return TaskCsvCodec.HEADER + CHECKSUM_PREFIX + "0".repeat(CHECKSUM_LENGTH - value.length()) + value + "\n";
+    }
+
+    // Читает строку заголовка без перевода строки, пустая строка - если файл пуст
+    private static String readHeader(InputStream in, Path path) throws IOException {
+        StringBuilder header = new StringBuilder(TaskCsvCodec.HEADER.length() + 32);
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            if (header.length() == MAX_HEADER_LENGTH) {
+                throw new IOException("Некорректный заголовок файла " + path);
+            }
+            if (b != '\r') header.append((char) b);
+        }
+        return header.toString();
+    }
+
+    private static long parseChecksum(String header, int start, Path path) throws IOException {
+        if (header.length() - start != CHECKSUM_LENGTH) {
+            throw new IOException("Некорректная контрольная сумма в заголовке файла " + path);
+        }
+        try {
+            return Long.parseLong(header.substring(start), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Некорректная контрольная сумма в заголовке файла " + path, e);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package dc.yandex.kanban.service.storage;
+
+public enum DurabilityLevel {
+    NONE, // данные остаются в кэше ОС, сброс на диск не запрашивается
+    PER_OPERATION, // сброс на диск после каждой операции
+    GROUP_COMMIT // одновременные операции ждут одного общего сброса на диск
+}
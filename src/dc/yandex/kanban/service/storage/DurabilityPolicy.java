@@ -0,0 +1,61 @@
+/*
+Политика надежности записи: когда изменения принудительно сбрасываются на диск
+*/
+package dc.yandex.kanban.service.storage;
+
+public class DurabilityPolicy {
+
+    private final DurabilityLevel level;
+    private final long groupCommitMillis; // сколько ждать присоединения других операций к сбросу
+    private final int groupCommitOperations; // после скольких операций сбрасывать без ожидания
+
+    private DurabilityPolicy(DurabilityLevel level, long groupCommitMillis, int groupCommitOperations) {
+        this.level = level;
+        this.groupCommitMillis = groupCommitMillis;
+        this.groupCommitOperations = groupCommitOperations;
+    }
+
+    // Без сброса на диск: минимальная задержка, при сбое ОС теряются последние изменения
+    public static DurabilityPolicy none() {
+        return new DurabilityPolicy(DurabilityLevel.NONE, 0, 1);
+    }
+
+    // Сброс на диск после каждой операции
+    public static DurabilityPolicy perOperation() {
+        return new DurabilityPolicy(DurabilityLevel.PER_OPERATION, 0, 1);
+    }
+
+    // Общий сброс на диск не реже чем раз в intervalMillis мс или каждые maxOperations операций
+    public static DurabilityPolicy groupCommit(long intervalMillis, int maxOperations) {
+        if (intervalMillis < 0 || maxOperations < 1) {
+            throw new IllegalArgumentException("Некорректные параметры группового сброса на диск");
+        }
+        return new DurabilityPolicy(DurabilityLevel.GROUP_COMMIT, intervalMillis, maxOperations);
+    }
+
+    public DurabilityLevel getLevel() {
+        return level;
+    }
+
+    public long getGroupCommitMillis() {
+        return groupCommitMillis;
+    }
+
+    public int getGroupCommitOperations() {
+        return groupCommitOperations;
+    }
+
+    // Нужно ли сбрасывать на диск журнал. Снимки и сегменты сбрасываются всегда
+    public boolean isSyncRequired() {
+        return level != DurabilityLevel.NONE;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "{" +
+                "level=" + level +
+                ", group_commit_millis=" + groupCommitMillis +
+                ", group_commit_operations=" + groupCommitOperations +
+                '}';
+    }
+}
@@ -0,0 +1,8 @@
+package dc.yandex.kanban.service.storage;
+
+public enum PersistenceMode {
+    SNAPSHOT, // после каждого изменения файл перезаписывается целиком
+    JOURNAL, // каждое изменение дописывается одной записью в журнал
+    ASYNC, // изменения отмечаются, а снимок записывается фоновым потоком, объединяющим серии изменений
+    SEGMENTED // состояние хранится сегментами по типу и диапазону id, перезаписываются только измененные
+}
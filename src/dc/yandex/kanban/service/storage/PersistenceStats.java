@@ -0,0 +1,165 @@
+/*
+Счетчики и замеры времени операций сохранения и восстановления состояния менеджера
+*/
+package dc.yandex.kanban.service.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PersistenceStats {
+
+    private final AtomicLong snapshotCount = new AtomicLong(); // количество записанных снимков
+    private final AtomicLong snapshotNanos = new AtomicLong(); // суммарное время записи снимков
+    private final AtomicLong lastSnapshotNanos = new AtomicLong(); // время записи последнего снимка
+    private final AtomicLong compactionCount = new AtomicLong(); // количество сжатий журнала
+    private final AtomicLong lastLoadNanos = new AtomicLong(); // время чтения снимка при загрузке
+    private final AtomicLong lastReplayNanos = new AtomicLong(); // время применения журнала при загрузке
+    private final AtomicLong replayedRecords = new AtomicLong(); // число записей журнала, примененных при загрузке
+    private final AtomicLong appendCount = new AtomicLong(); // количество записей, дописанных в журнал
+    private final AtomicLong appendNanos = new AtomicLong(); // суммарное время дозаписи с ожиданием сброса на диск
+    private final AtomicLong syncCount = new AtomicLong(); // количество сбросов на диск
+    private final AtomicLong syncNanos = new AtomicLong(); // суммарное время сбросов на диск
+    private final AtomicLong segmentWriteCount = new AtomicLong(); // количество перезаписанных сегментов
+    private final AtomicLong recoveryCount = new AtomicLong(); // загрузки из предыдущего снимка вместо поврежденного
+    private final AtomicLong asyncWriteCount = new AtomicLong(); // количество фоновых записей снимка
+    private final AtomicLong coalescedChanges = new AtomicLong(); // число изменений, сохраненных фоновыми записями
+
+    // Учитывает запись снимка
+    public void recordSnapshot(long nanos) {
+        snapshotCount.incrementAndGet();
+        snapshotNanos.addAndGet(nanos);
+        lastSnapshotNanos.set(nanos);
+    }
+
+    // Учитывает завершенное сжатие журнала
+    public void recordCompaction() {
+        compactionCount.incrementAndGet();
+    }
+
+    // Учитывает загрузку снимка и применение журнала
+    public void recordLoad(long loadNanos, long replayNanos, long records) {
+        lastLoadNanos.set(loadNanos);
+        lastReplayNanos.set(replayNanos);
+        replayedRecords.set(records);
+    }
+
+    // Учитывает дозапись в журнал, включая ожидание сброса на диск
+    public void recordAppend(long nanos) {
+        appendCount.incrementAndGet();
+        appendNanos.addAndGet(nanos);
+    }
+
+    // Учитывает сброс файла на диск
+    public void recordSync(long nanos) {
+        syncCount.incrementAndGet();
+        syncNanos.addAndGet(nanos);
+    }
+
+    // Учитывает перезапись одного сегмента
+    public void recordSegmentWrite() {
+        segmentWriteCount.incrementAndGet();
+    }
+
+    // Учитывает загрузку из предыдущего снимка, потому что последний поврежден
+    public void recordRecovery() {
+        recoveryCount.incrementAndGet();
+    }
+
+    // Учитывает фоновую запись снимка, объединившую несколько изменений
+    public void recordCoalescedWrite(long changes) {
+        asyncWriteCount.incrementAndGet();
+        coalescedChanges.addAndGet(changes);
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount.get();
+    }
+
+    public long getSnapshotNanos() {
+        return snapshotNanos.get();
+    }
+
+    public long getLastSnapshotNanos() {
+        return lastSnapshotNanos.get();
+    }
+
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    public long getLastLoadNanos() {
+        return lastLoadNanos.get();
+    }
+
+    public long getLastReplayNanos() {
+        return lastReplayNanos.get();
+    }
+
+    public long getReplayedRecords() {
+        return replayedRecords.get();
+    }
+
+    public long getAppendCount() {
+        return appendCount.get();
+    }
+
+    public long getAppendNanos() {
+        return appendNanos.get();
+    }
+
+    // Среднее время одной дозаписи в журнал, нс
+    public long getAverageAppendNanos() {
+        long count = appendCount.get();
+        return count == 0 ? 0 : appendNanos.get() / count;
+    }
+
+    public long getSyncCount() {
+        return syncCount.get();
+    }
+
+    public long getSyncNanos() {
+        return syncNanos.get();
+    }
+
+    // Среднее время одного сброса на диск, нс
+    public long getAverageSyncNanos() {
+        long count = syncCount.get();
+        return count == 0 ? 0 : syncNanos.get() / count;
+    }
+
+    public long getSegmentWriteCount() {
+        return segmentWriteCount.get();
+    }
+
+    public long getRecoveryCount() {
+        return recoveryCount.get();
+    }
+
+    public long getAsyncWriteCount() {
+        return asyncWriteCount.get();
+    }
+
+    public long getCoalescedChanges() {
+        return coalescedChanges.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "{" +
+                "snapshots=" + getSnapshotCount() +
+                ", snapshot_nanos=" + getSnapshotNanos() +
+                ", last_snapshot_nanos=" + getLastSnapshotNanos() +
+                ", compactions=" + getCompactionCount() +
+                ", last_load_nanos=" + getLastLoadNanos() +
+                ", last_replay_nanos=" + getLastReplayNanos() +
+                ", replayed_records=" + getReplayedRecords() +
+                ", appends=" + getAppendCount() +
+                ", avg_append_nanos=" + getAverageAppendNanos() +
+                ", syncs=" + getSyncCount() +
+                ", avg_sync_nanos=" + getAverageSyncNanos() +
+                ", segment_writes=" + getSegmentWriteCount() +
+                ", recoveries=" + getRecoveryCount() +
+                ", async_writes=" + getAsyncWriteCount() +
+                ", coalesced_changes=" + getCoalescedChanges() +
+                '}';
+    }
+}
@@ -0,0 +1,201 @@
+/*
+Хранение состояния менеджера в сегментах: отдельный файл снимка на каждый тип задач и диапазон id.
+У каждого сегмента свои заголовок и контрольная сумма, поэтому после изменения перезаписываются
+только сегменты с измененными id, а при загрузке сегменты читаются параллельно
+*/
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.model.TaskType;
+import dc.yandex.kanban.service.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class SegmentedStore {
+
+    private static final String directorySuffix = ".segments"; // суффикс каталога сегментов
+    private static final String segmentSuffix = ".seg"; // суффикс файла сегмента
+    private static final String tempSuffix = ".tmp";
+
+    private final Path directory; // каталог сегментов
+    private final int segmentSize; // количество id в одном сегменте
+    private final SnapshotFormat format;
+    private final PersistenceStats stats;
+    private final ForkJoinPool pool; // пул для параллельной записи и чтения сегментов
+
+    public SegmentedStore(String filename, int segmentSize, SnapshotFormat format, PersistenceStats stats) {
+        this.directory = Paths.get(filename + directorySuffix);
+        this.segmentSize = segmentSize;
+        this.format = format;
+        this.stats = stats;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // Проверяет, записывалось ли состояние в сегменты
+    public boolean exists() {
+        return Files.isDirectory(directory);
+    }
+
+    // Номер сегмента, в который попадает задача с указанным id
+    public int segmentOf(int taskId) {
+        return Math.floorDiv(taskId, segmentSize);
+    }
+
+    // Первый id сегмента
+    public int firstIdOf(int segment) {
+        return segment * segmentSize;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    // Перезаписывает один сегмент. Пустой сегмент удаляется
+    public void writeSegment(TaskType type, int segment, List<TaskRecord> records) {
+        try {
+            Files.createDirectories(directory);
+            Path path = segmentPath(type, segment);
+            if (records.isEmpty()) {
+                Files.deleteIfExists(path);
+            } else {
+                Path temp = Paths.get(path + tempSuffix);
+                SnapshotFiles.write(temp, records, format, stats);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                SnapshotFiles.syncDirectory(directory, stats);
+            }
+            stats.recordSegmentWrite();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи сегмента " + type + " " + segment, e);
+        }
+    }
+
+    // Удаляет все сегменты задач указанного типа
+    public void clearType(TaskType type) {
+        try {
+            for (Path path : findSegments().getOrDefault(type, new TreeMap<>()).values()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления сегментов " + type, e);
+        }
+    }
+
+    // Записывает полное состояние параллельно по сегментам и удаляет сегменты, в которых задач больше нет.
+    // Вызывающий не должен одновременно записывать отдельные сегменты: записи фиксируются до вызова
+    public void writeAll(List<TaskRecord> records) {
+        Map<TaskType, Map<Integer, List<TaskRecord>>> segments = new EnumMap<>(TaskType.class);
+        for (TaskRecord record : records) {
+            segments.computeIfAbsent(record.getType(), type -> new TreeMap<>())
+                    .computeIfAbsent(segmentOf(record.getId()), segment -> new ArrayList<>())
+                    .add(record);
+        }
+        Map<TaskType, TreeMap<Integer, Path>> existing = exists() ? findSegments() : new EnumMap<>(TaskType.class);
+        List<Runnable> writes = new ArrayList<>();
+        for (TaskType type : TaskType.values()) {
+            Map<Integer, List<TaskRecord>> typeSegments = segments.getOrDefault(type, new TreeMap<>());
+            typeSegments.forEach((segment, segmentRecords) ->
+                    writes.add(() -> writeSegment(type, segment, segmentRecords)));
+            existing.getOrDefault(type, new TreeMap<>()).keySet().stream()
+                    .filter(segment -> !typeSegments.containsKey(segment))
+                    .forEach(segment -> writes.add(() -> writeSegment(type, segment, new ArrayList<>())));
+        }
+        run(() -> writes.parallelStream().forEach(Runnable::run));
+    }
+
+    // Читает все сегменты параллельно. Порядок записей внутри сегмента сохраняется
+    public List<TaskRecord> readAll() {
+        List<Path> paths = findSegments().values().stream()
+                .flatMap(typeSegments -> typeSegments.values().stream())
+                .collect(Collectors.toList());
+        List<List<TaskRecord>> segments = new ArrayList<>();
+        run(() -> segments.addAll(paths.parallelStream().map(this::readSegment).collect(Collectors.toList())));
+        List<TaskRecord> records = new ArrayList<>();
+        segments.forEach(records::addAll);
+        return records;
+    }
+
+    // Удаляет каталог сегментов целиком
+    public void delete() {
+        if (!exists()) return;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления сегментов", e);
+        }
+    }
+
+    private List<TaskRecord> readSegment(Path path) {
+        try {
+            return SnapshotFiles.read(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Выполняет задачу в пуле, передавая ошибки записи и чтения вызывающему потоку
+    private void run(Runnable task) {
+        try {
+            pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Работа с сегментами прервана", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ManagerSaveException) {
+                throw (ManagerSaveException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw new ManagerSaveException("Ошибка чтения сегмента", ((UncheckedIOException) cause).getCause());
+            }
+            throw new ManagerSaveException("Ошибка работы с сегментами", e);
+        }
+    }
+
+    // Находит файлы сегментов, сгруппированные по типу задач и упорядоченные по номеру сегмента
+    private Map<TaskType, TreeMap<Integer, Path>> findSegments() {
+        Map<TaskType, TreeMap<Integer, Path>> segments = new EnumMap<>(TaskType.class);
+        if (!exists()) return segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                int separator = name.indexOf('-');
+                if (!name.endsWith(segmentSuffix) || separator < 0) return;
+                try {
+                    TaskType type = TaskType.valueOf(name.substring(0, separator));
+                    int segment = Integer.parseInt(name.substring(separator + 1,
+                            name.length() - segmentSuffix.length()));
+                    segments.computeIfAbsent(type, key -> new TreeMap<>()).put(segment, path);
+                } catch (IllegalArgumentException e) {
+                    // посторонний файл в каталоге сегментов
+                }
+            });
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка поиска сегментов", e);
+        }
+        return segments;
+    }
+
+    private Path segmentPath(TaskType type, int segment) {
+        return directory.resolve(type.name() + "-" + segment + segmentSuffix);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+Запись и чтение файлов снимков в любом из поддерживаемых форматов.
+Снимок пишется во временный файл и переименовывается поверх прежнего, поэтому он всегда сбрасывается на диск
+вместе с каталогом, независимо от политики надежности журнала: иначе после сбоя ОС на месте снимка
+и резервной копии могут оказаться пустые или недописанные файлы
+*/
+package dc.yandex.kanban.service.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SnapshotFiles {
+
+    private SnapshotFiles() {
+    }
+
+    // Записывает задачи в файл в указанном формате и сбрасывает его на диск
+    public static void write(Path path, List<TaskRecord> records, SnapshotFormat format,
+                             PersistenceStats stats) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (format == SnapshotFormat.BINARY) {
+                BinarySnapshot.write(channel, records);
+            } else {
+                CsvSnapshot.write(channel, records);
+            }
+            long start = System.nanoTime();
+            channel.force(true);
+            stats.recordSync(System.nanoTime() - start);
+        }
+    }
+
+    // Сбрасывает на диск каталог, чтобы создание и переименования файлов пережили сбой
+    public static void syncDirectory(Path directory, PersistenceStats stats) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            long start = System.nanoTime();
+            channel.force(true);
+            stats.recordSync(System.nanoTime() - start);
+        } catch (IOException e) {
+            // не все файловые системы позволяют открыть каталог
+        }
+    }
+
+    // Читает задачи снимка, формат определяется по содержимому. Пустой список - если файла нет
+    public static List<TaskRecord> read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        if (BinarySnapshot.isBinarySnapshot(path)) {
+            return BinarySnapshot.read(path);
+        }
+        return CsvSnapshot.read(path);
+    }
+}
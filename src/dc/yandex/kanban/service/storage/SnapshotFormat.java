@@ -0,0 +1,6 @@
+package dc.yandex.kanban.service.storage;
+
+public enum SnapshotFormat {
+    CSV, // текстовый формат id,type,start_time,... - для импорта и экспорта
+    BINARY // двоичный формат с записями фиксированной длины и таблицей строк
+}
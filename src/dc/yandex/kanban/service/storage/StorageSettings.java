@@ -0,0 +1,114 @@
+/*
+Настройки хранения состояния менеджера задач в файле
+*/
+package dc.yandex.kanban.service.storage;
+
+public class StorageSettings {
+
+    public static final long DEFAULT_COMPACTION_RECORDS = 10_000; // порог числа записей журнала
+    public static final long DEFAULT_COMPACTION_BYTES = 4L * 1024 * 1024; // порог размера журнала, байт
+    public static final int DEFAULT_SEGMENT_SIZE = 1024; // количество id в одном сегменте
+
+    private final PersistenceMode persistenceMode; // способ сохранения изменений
+    private final long compactionRecords; // число записей журнала, после которого он сжимается, 0 - без порога
+    private final long compactionBytes; // размер журнала, после которого он сжимается, 0 - без порога
+    private final DurabilityPolicy durability; // когда изменения сбрасываются на диск
+    private final SnapshotFormat snapshotFormat; // формат файла полного снимка
+    private final long asyncWriteDelayMillis; // сколько фоновый поток ждет новых изменений перед записью снимка
+    private final int segmentSize; // количество id в одном сегменте в режиме SEGMENTED
+
+    private StorageSettings(PersistenceMode persistenceMode, long compactionRecords, long compactionBytes,
+                            DurabilityPolicy durability, SnapshotFormat snapshotFormat, long asyncWriteDelayMillis,
+                            int segmentSize) {
+        this.persistenceMode = persistenceMode;
+        this.compactionRecords = compactionRecords;
+        this.compactionBytes = compactionBytes;
+        this.durability = durability;
+        this.snapshotFormat = snapshotFormat;
+        this.asyncWriteDelayMillis = asyncWriteDelayMillis;
+        this.segmentSize = segmentSize;
+    }
+
+    // Возвращает настройки по умолчанию: полная перезапись файла после каждого изменения
+    public static StorageSettings defaults() {
+        return new StorageSettings(PersistenceMode.SNAPSHOT, DEFAULT_COMPACTION_RECORDS, DEFAULT_COMPACTION_BYTES,
+                DurabilityPolicy.none(), SnapshotFormat.CSV, 0, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public StorageSettings withPersistenceMode(PersistenceMode persistenceMode) {
+        return new StorageSettings(persistenceMode, compactionRecords, compactionBytes, durability, snapshotFormat,
+                asyncWriteDelayMillis, segmentSize);
+    }
+
+    // Задает пороги сжатия журнала, 0 отключает соответствующий порог
+    public StorageSettings withCompactionThresholds(long compactionRecords, long compactionBytes) {
+        if (compactionRecords < 0 || compactionBytes < 0) {
+            throw new IllegalArgumentException("Пороги сжатия журнала не могут быть отрицательными");
+        }
+        return new StorageSettings(persistenceMode, compactionRecords, compactionBytes, durability, snapshotFormat,
+                asyncWriteDelayMillis, segmentSize);
+    }
+
+    public StorageSettings withDurability(DurabilityPolicy durability) {
+        return new StorageSettings(persistenceMode, compactionRecords, compactionBytes, durability, snapshotFormat,
+                asyncWriteDelayMillis, segmentSize);
+    }
+
+    public StorageSettings withSnapshotFormat(SnapshotFormat snapshotFormat) {
+        return new StorageSettings(persistenceMode, compactionRecords, compactionBytes, durability, snapshotFormat,
+                asyncWriteDelayMillis, segmentSize);
+    }
+
+    // Задает задержку записи снимка в режиме ASYNC: изменения, сделанные за это время, попадут в одну запись.
+    // При 0 объединяются изменения, накопившиеся, пока записывался предыдущий снимок
+    public StorageSettings withAsyncWriteDelay(long asyncWriteDelayMillis) {
+        if (asyncWriteDelayMillis < 0) {
+            throw new IllegalArgumentException("Задержка записи не может быть отрицательной");
+        }
+        return new StorageSettings(persistenceMode, compactionRecords, compactionBytes, durability, snapshotFormat,
+                asyncWriteDelayMillis, segmentSize);
+    }
+
+    // Задает количество id в одном сегменте: чем меньше сегмент, тем меньше перезаписывается при изменении
+    public StorageSettings withSegmentSize(int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Размер сегмента должен быть положительным");
+        }
+        return new StorageSettings(persistenceMode, compactionRecords, compactionBytes, durability, snapshotFormat,
+                asyncWriteDelayMillis, segmentSize);
+    }
+
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+
+    public long getCompactionRecords() {
+        return compactionRecords;
+    }
+
+    public long getCompactionBytes() {
+        return compactionBytes;
+    }
+
+    public DurabilityPolicy getDurability() {
+        return durability;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public long getAsyncWriteDelayMillis() {
+        return asyncWriteDelayMillis;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    // Проверяет, пора ли сжимать журнал с указанным числом записей и размером
+    public boolean isCompactionDue(long recordCount, long sizeBytes) {
+        return (compactionRecords > 0 && recordCount >= compactionRecords)
+                || (compactionBytes > 0 && sizeBytes >= compactionBytes);
+    }
+}
@@ -0,0 +1,302 @@
+/*
+Потоковый кодек строк задач в формате CSV (RFC 4180).
+Поля, содержащие разделитель, кавычки или перевод строки, заключаются в кавычки, кавычки внутри удваиваются.
+Буферы строки и полей переиспользуются, числа и даты разбираются прямо из символов без промежуточных строк.
+Экземпляр не потокобезопасен: каждый поток записи или чтения использует свой кодек
+*/
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+public class TaskCsvCodec {
+
+    public static final String HEADER = "id,type,start_time,duration,name,status,description,epic";
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final int FIELD_COUNT = 8; // полей в строке подзадачи
+    private static final int MIN_FIELD_COUNT = 7; // полей в строке задачи и эпика
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final TaskStatus[] TASK_STATUSES = TaskStatus.values();
+    private static final DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final StringBuilder row = new StringBuilder(128); // буфер формируемой строки
+    private final StringBuilder[] fields = new StringBuilder[FIELD_COUNT + 1]; // последний - для лишних полей
+    private final char[] readBuffer = new char[READ_BUFFER_SIZE];
+    private char[] writeBuffer = new char[128]; // символы строки для записи, растет под самую длинную строку
+
+    // Состояние разбора текущей строки
+    private int fieldIndex;
+    private boolean quoted; // внутри поля в кавычках
+    private boolean quotePending; // в поле в кавычках встретилась кавычка: конец поля или экранирование
+    private boolean rowStarted; // в строке уже есть символы
+
+    public TaskCsvCodec() {
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new StringBuilder(64);
+        }
+    }
+
+    // Записывает строку задачи и перевод строки. Writer.append(CharSequence) создал бы строку,
+    // поэтому символы копируются в переиспользуемый массив
+    public void write(TaskRecord record, Writer writer) throws IOException {
+        format(record);
+        int length = row.length();
+        if (writeBuffer.length < length + 1) {
+            writeBuffer = new char[Math.max(length + 1, writeBuffer.length * 2)];
+        }
+        row.getChars(0, length, writeBuffer, 0);
+        writeBuffer[length] = '\n';
+        writer.write(writeBuffer, 0, length + 1);
+    }
+
+    // Формирует строку задачи во внутреннем буфере. Буфер действителен до следующего вызова
+    public CharSequence format(TaskRecord record) {
+        row.setLength(0);
+        row.append(record.getId()).append(DELIMITER);
+        row.append(record.getType().name()).append(DELIMITER);
+        if (record.getStartTime() != null) appendDateTime(record.getStartTime());
+        row.append(DELIMITER);
+        if (record.getDuration() != null) row.append(record.getDuration().toMinutes());
+        row.append(DELIMITER);
+        appendText(record.getName());
+        row.append(DELIMITER);
+        row.append(record.getStatus().name()).append(DELIMITER);
+        appendText(record.getDescription());
+        if (record.getType() == TaskType.SUBTASK) {
+            row.append(DELIMITER).append(record.getEpicId());
+        }
+        return row;
+    }
+
+    // Разбирает одну строку задачи, null - если строка пустая или в ней не хватает полей
+    public TaskRecord parse(CharSequence line) {
+        resetRow();
+        for (int i = 0; i < line.length(); i++) {
+            accept(line.charAt(i));
+        }
+        return finishRow();
+    }
+
+    // Читает строки задач из потока и передает их обработчику. Первая строка - заголовок - пропускается.
+    // Некорректные строки пропускаются
+    public void read(Reader reader, Consumer<TaskRecord> consumer) throws IOException {
+        read(reader, consumer, true);
+    }
+
+    // Читает строки задач из потока, заголовок которого уже прочитан
+    public void readRows(Reader reader, Consumer<TaskRecord> consumer) throws IOException {
+        read(reader, consumer, false);
+    }
+
+    private void read(Reader reader, Consumer<TaskRecord> consumer, boolean skipHeader) throws IOException {
+        resetRow();
+        boolean header = skipHeader;
+        int count;
+        while ((count = reader.read(readBuffer)) >= 0) {
+            for (int i = 0; i < count; i++) {
+                char c = readBuffer[i];
+                if (c == '\n' && (!quoted || quotePending)) {
+                    if (header) {
+                        header = false;
+                        resetRow();
+                    } else {
+                        acceptRow(consumer);
+                    }
+                } else {
+                    accept(c);
+                }
+            }
+        }
+        if (!header) {
+            acceptRow(consumer);
+        }
+    }
+
+    private void acceptRow(Consumer<TaskRecord> consumer) {
+        try {
+            TaskRecord record = finishRow();
+            if (record != null) consumer.accept(record);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            System.out.println("Некорректная строка файла: " + e.getMessage());
+        }
+        resetRow();
+    }
+
+    private void resetRow() {
+        for (StringBuilder field : fields) {
+            field.setLength(0);
+        }
+        fieldIndex = 0;
+        quoted = false;
+        quotePending = false;
+        rowStarted = false;
+    }
+
+    // Обрабатывает очередной символ строки
+    private void accept(char c) {
+        rowStarted = true;
+        if (quoted) {
+            if (quotePending) {
+                quotePending = false;
+                if (c == QUOTE) {
+                    fields[fieldIndex].append(QUOTE);
+                    return;
+                }
+                quoted = false;
+            } else {
+                if (c == QUOTE) {
+                    quotePending = true;
+                } else {
+                    fields[fieldIndex].append(c);
+                }
+                return;
+            }
+        }
+        if (c == DELIMITER) {
+            if (fieldIndex < FIELD_COUNT) fieldIndex++;
+        } else if (c == QUOTE && fields[fieldIndex].length() == 0) {
+            quoted = true;
+        } else if (c != '\r') {
+            fields[fieldIndex].append(c);
+        }
+    }
+
+    // Собирает запись из разобранных полей строки
+    private TaskRecord finishRow() {
+        if (!rowStarted || fieldIndex + 1 < MIN_FIELD_COUNT) {
+            return null;
+        }
+        int epicId = fieldIndex + 1 > MIN_FIELD_COUNT ? parseInt(fields[7]) : 0;
+        return new TaskRecord(
+                parseInt(fields[0]),
+                parseEnum(fields[1], TASK_TYPES),
+                parseEnum(fields[5], TASK_STATUSES),
+                parseDateTime(fields[2]),
+                isBlank(fields[3]) ? Duration.ZERO : Duration.ofMinutes(parseLong(fields[3])),
+                epicId,
+                fields[4].toString(),
+                fields[6].toString());
+    }
+
+    // Дописывает текстовое поле, при необходимости заключая его в кавычки
+    private void appendText(String value) {
+        if (value == null) return;
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == DELIMITER || c == QUOTE || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            row.append(value);
+            return;
+        }
+        row.append(QUOTE);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == QUOTE) row.append(QUOTE);
+            row.append(c);
+        }
+        row.append(QUOTE);
+    }
+
+    // Дописывает дату в формате yyyy-MM-dd HH:mm
+    private void appendDateTime(LocalDateTime dateTime) {
+        if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+            row.append(dateTime.format(dateTimeFormatter));
+            return;
+        }
+        appendPadded(dateTime.getYear(), 4);
+        row.append('-');
+        appendPadded(dateTime.getMonthValue(), 2);
+        row.append('-');
+        appendPadded(dateTime.getDayOfMonth(), 2);
+        row.append(' ');
+        appendPadded(dateTime.getHour(), 2);
+        row.append(':');
+        appendPadded(dateTime.getMinute(), 2);
+    }
+
+    private void appendPadded(int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) row.append('0');
+        }
+        row.append(value);
+    }
+
+    private static LocalDateTime parseDateTime(StringBuilder field) {
+        if (isBlank(field)) return null;
+        if (field.length() != 16) {
+            return LocalDateTime.parse(field, dateTimeFormatter);
+        }
+        return LocalDateTime.of((int) digits(field, 0, 4), (int) digits(field, 5, 2), (int) digits(field, 8, 2),
+                (int) digits(field, 11, 2), (int) digits(field, 14, 2));
+    }
+
+    private static int parseInt(CharSequence field) {
+        long value = parseLong(field);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Некорректное число: " + field);
+        }
+        return (int) value;
+    }
+
+    private static long parseLong(CharSequence field) {
+        int start = 0;
+        boolean negative = false;
+        if (field.length() > 0 && field.charAt(0) == '-') {
+            negative = true;
+            start = 1;
+        }
+        if (start == field.length() || field.length() - start > 18) {
+            throw new IllegalArgumentException("Некорректное число: " + field);
+        }
+        long value = digits(field, start, field.length() - start);
+        return negative ? -value : value;
+    }
+
+    private static long digits(CharSequence field, int start, int count) {
+        long value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = field.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Некорректное число: " + field);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // Находит значение перечисления по имени без создания строки
+    private static <E extends Enum<E>> E parseEnum(CharSequence field, E[] values) {
+        for (E value : values) {
+            if (contentEquals(field, value.name())) return value;
+        }
+        throw new IllegalArgumentException("Некорректное значение: " + field);
+    }
+
+    private static boolean contentEquals(CharSequence field, String value) {
+        if (field.length() != value.length()) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (field.charAt(i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(CharSequence field) {
+        for (int i = 0; i < field.length(); i++) {
+            if (!Character.isWhitespace(field.charAt(i))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,272 @@
+/*
+Журнал изменений менеджера задач: файл, в который только дописываются записи, по одной строке на изменение
+*/
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.service.exceptions.ManagerSaveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskJournal implements AutoCloseable {
+
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private final Path path; // путь к файлу журнала
+    private final FileChannel channel; // канал, открытый на дозапись
+    private final DurabilityPolicy durability; // когда записи сбрасываются на диск
+    private final PersistenceStats stats; // замеры дозаписи и сброса на диск
+    private long recordCount; // количество записей в журнале
+    private long size; // размер журнала в байтах
+    private final CharsetEncoder encoder; // переиспользуемый кодировщик записей, защищен монитором журнала
+    private ByteBuffer writeBuffer; // переиспользуемый буфер записи, растет под самую длинную запись
+
+    // Состояние группового сброса на диск, защищено syncLock
+    private final Object syncLock = new Object();
+    private long writtenSequence; // номер последней записанной в канал записи
+    private long syncedSequence; // номер последней записи, гарантированно сброшенной на диск
+    private boolean syncInProgress; // один из потоков выполняет сброс на диск
+
+    public TaskJournal(Path path) {
+        this(path, DurabilityPolicy.none(), new PersistenceStats());
+    }
+
+    public TaskJournal(Path path, DurabilityPolicy durability, PersistenceStats stats) {
+        this.path = path;
+        this.durability = durability;
+        this.stats = stats;
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.writeBuffer = ByteBuffer.allocate(256);
+        try {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.size = channel.size();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка открытия журнала " + path, e);
+        }
+        this.recordCount = 0;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    // Дописывает одну запись в конец журнала и дожидается сброса на диск согласно политике надежности
+    public void append(CharSequence record) {
+        long start = System.nanoTime();
+        awaitDurable(write(record), start);
+    }
+
+    // Дожидается сброса на диск записи с номером sequence согласно политике надежности.
+    // Вызывающий не должен держать блокировок, под которыми пишут другие потоки: иначе их записи
+    // не смогут присоединиться к групповому сбросу. start - момент начала записи для замеров
+    public void awaitDurable(long sequence, long start) {
+        switch (durability.getLevel()) {
+            case PER_OPERATION:
+                sync(sequence);
+                break;
+            case GROUP_COMMIT:
+                awaitGroupSync(sequence);
+                break;
+            default:
+                // сброс на диск не требуется
+        }
+        stats.recordAppend(System.nanoTime() - start);
+    }
+
+    // Записывает строку в канал без ожидания сброса на диск, возвращает порядковый номер записи для awaitDurable
+    public synchronized long write(CharSequence record) {
+        ByteBuffer buffer = encode(record);
+        int length = buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи журнала " + path, e);
+        }
+        recordCount++;
+        size += length;
+        synchronized (syncLock) {
+            writtenSequence++;
+            if (writtenSequence - syncedSequence >= durability.getGroupCommitOperations()) {
+                // набралась полная группа - будим лидера, ожидающего присоединения операций
+                syncLock.notifyAll();
+            }
+            return writtenSequence;
+        }
+    }
+
+    // Кодирует запись с переводом строки в переиспользуемый буфер, готовый к записи в канал
+    private ByteBuffer encode(CharSequence record) {
+        CharBuffer chars = CharBuffer.wrap(record);
+        encoder.reset();
+        writeBuffer.clear();
+        while (true) {
+            CoderResult result = chars.hasRemaining()
+                    ? encoder.encode(chars, writeBuffer, true) : CoderResult.UNDERFLOW;
+            if (!result.isOverflow()) {
+                result = encoder.flush(writeBuffer);
+            }
+            // место под перевод строки тоже должно остаться
+            if (!result.isOverflow() && writeBuffer.hasRemaining()) break;
+            ByteBuffer grown = ByteBuffer.allocate(writeBuffer.capacity() * 2);
+            writeBuffer.flip();
+            grown.put(writeBuffer);
+            writeBuffer = grown;
+        }
+        writeBuffer.put(LINE_SEPARATOR).flip();
+        return writeBuffer;
+    }
+
+    // Ждет, пока запись с номером sequence попадет на диск. Первый ожидающий поток становится лидером:
+    // ждет присоединения других операций не дольше интервала группы и выполняет один общий сброс
+    private void awaitGroupSync(long sequence) {
+        long target;
+        synchronized (syncLock) {
+            while (syncInProgress) {
+                if (syncedSequence >= sequence) return;
+                waitForSync(0);
+            }
+            if (syncedSequence >= sequence) return;
+            syncInProgress = true;
+            long deadline = System.nanoTime() + durability.getGroupCommitMillis() * 1_000_000L;
+            long remaining;
+            while (writtenSequence - syncedSequence < durability.getGroupCommitOperations()
+                    && (remaining = deadline - System.nanoTime()) > 0) {
+                waitForSync(Math.max(1, remaining / 1_000_000L));
+            }
+            target = writtenSequence;
+        }
+        try {
+            force(target);
+        } finally {
+            synchronized (syncLock) {
+                syncInProgress = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    private void waitForSync(long millis) {
+        try {
+            syncLock.wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание сброса журнала на диск прервано", e);
+        }
+    }
+
+    // Сбрасывает на диск все записи до номера sequence включительно, если это еще не сделано
+    private void sync(long sequence) {
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) return;
+        }
+        force(sequence);
+    }
+
+    private void force(long sequence) {
+        try {
+            long start = System.nanoTime();
+            channel.force(false);
+            stats.recordSync(System.nanoTime() - start);
+        } catch (ClosedChannelException e) {
+            // журнал закрыли, пока запись ждала сброса: закрытие сбрасывает на диск все записи
+            synchronized (syncLock) {
+                if (syncedSequence >= sequence) return;
+            }
+            throw new ManagerSaveException("Журнал закрыт до сброса на диск " + path, e);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сброса журнала на диск " + path, e);
+        }
+        synchronized (syncLock) {
+            syncedSequence = Math.max(syncedSequence, sequence);
+            syncLock.notifyAll();
+        }
+    }
+
+    // Очищает журнал (после того, как его записи попали в полный снимок)
+    public synchronized void reset() {
+        try {
+            channel.truncate(0);
+            if (durability.isSyncRequired()) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка очистки журнала " + path, e);
+        }
+        recordCount = 0;
+        size = 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (durability.isSyncRequired() && channel.isOpen()) {
+                long sequence;
+                synchronized (syncLock) {
+                    sequence = writtenSequence;
+                }
+                sync(sequence);
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала " + path, e);
+        }
+    }
+
+    // Читает все записи журнала, пустой список - если журнала нет.
+    // Перевод строки внутри поля в кавычках не разделяет записи
+    public static List<String> readRecords(Path path) {
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        try {
+            List<String> records = new ArrayList<>();
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            boolean quoted = false;
+            int recordStart = 0;
+            for (int i = 0; i < content.length(); i++) {
+                char c = content.charAt(i);
+                if (c == '"') {
+                    // удвоенная кавычка внутри поля переключает состояние дважды
+                    quoted = !quoted;
+                } else if (c == LINE_SEPARATOR && !quoted) {
+                    addRecord(records, content, recordStart, i);
+                    recordStart = i + 1;
+                }
+            }
+            addRecord(records, content, recordStart, content.length());
+            return records;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка чтения журнала " + path, e);
+        }
+    }
+
+    private static void addRecord(List<String> records, String content, int start, int end) {
+        String record = content.substring(start, end);
+        if (!record.isBlank()) records.add(record);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+Неизменяемая копия полей задачи для записи в файл и чтения из него.
+Позволяет записывать снимок в фоновом потоке, не обращаясь к изменяемым объектам задач
+*/
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.model.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+public class TaskRecord {
+
+    private final int id;
+    private final TaskType type;
+    private final TaskStatus status;
+    private final LocalDateTime startTime;
+    private final Duration duration;
+    private final int epicId; // id эпика для подзадачи, 0 для остальных типов
+    private final String name;
+    private final String description;
+
+    public TaskRecord(int id, TaskType type, TaskStatus status, LocalDateTime startTime, Duration duration,
+                      int epicId, String name, String description) {
+        this.id = id;
+        this.type = type;
+        this.status = status;
+        this.startTime = startTime;
+        this.duration = duration;
+        this.epicId = epicId;
+        this.name = name;
+        this.description = description;
+    }
+
+    // Фиксирует текущее состояние задачи
+    public static TaskRecord of(Task task) {
+        int epicId = task.getType() == TaskType.SUBTASK ? ((SubTask) task).getParentTask().getId() : 0;
+        return new TaskRecord(task.getId(), task.getType(), task.getStatus(), task.getStartTime(),
+                task.getDuration(), epicId, task.getName(), task.getDescription());
+    }
+
+    // Создает задачу по записи. Для подзадачи передается ее эпик, для остальных типов - null
+    public Task toTask(Epic epic) {
+        switch (type) {
+            case EPIC:
+                return new Epic(id, name, description, startTime, duration);
+            case SUBTASK:
+                SubTask subTask = new SubTask(epic, id, name, description, startTime, duration);
+                subTask.setStatus(status);
+                return subTask;
+            default:
+                Task task = new Task(id, name, description, startTime, duration);
+                task.setStatus(status);
+                return task;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public TaskStatus getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public int getEpicId() {
+        return epicId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
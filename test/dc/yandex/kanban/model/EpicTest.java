@@ -2,7 +2,15 @@ package dc.yandex.kanban.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -28,6 +36,18 @@ class EpicTest {
         assertEquals(1, subTasks.size(), "Размер списка подзадач некорректен");
     }
 
+    @Test
+    public void shouldAddSubtasksInBulk() {
+        Epic epic1 = new Epic(222, "Эпик10", "Описание10");
+        SubTask subTask1 = new SubTask(epic1, 223, "Подзадача 223", "Описание 223");
+        SubTask subTask2 = new SubTask(epic1, 224, "Подзадача 224", "Описание 224");
+        subTask2.setStatus(TaskStatus.DONE);
+        epic1.addSubTasks(List.of(subTask1, subTask2));
+
+        assertEquals(2, epic1.getSubTasks().size(), "Размер списка подзадач некорректен");
+        assertEquals(TaskStatus.IN_PROGRESS, epic1.getStatus(), "Статус эпика не пересчитан");
+    }
+
     @Test
     public void shouldDeleteSubtask() {
         Epic epic1 = new Epic(222, "Эпик10", "Описание10");
@@ -81,4 +101,91 @@ class EpicTest {
         assertNotNull(subTasks, "Список подзадач отсутствует.");
         assertEquals(0, subTasks.size(), "Список подзадач не очищен!");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldMatchFullRecalculationAfterIncrementalChanges() {
+        Epic epic1 = new Epic(222, "Эпик10", "Описание10");
+        List<SubTask> subTasks = new ArrayList<>();
+        Random random = new Random(3);
+        LocalDateTime base = LocalDateTime.of(2024, 7, 24, 0, 0);
+        for (int i = 0; i < 2000; i++) {
+            int action = random.nextInt(4);
+            if (action == 0 || subTasks.isEmpty()) {
+                SubTask subTask = new SubTask(epic1, 1000 + i, "Подзадача " + i, "Описание " + i,
+                        random.nextBoolean() ? null : base.plusMinutes(random.nextInt(1000)),
+                        Duration.ofMinutes(random.nextInt(60)));
+                subTasks.add(subTask);
+                epic1.addSubTask(subTask);
+            } else if (action == 1) {
+                epic1.deleteSubTask(subTasks.remove(random.nextInt(subTasks.size())));
+            } else if (action == 2) {
+                SubTask subTask = subTasks.get(random.nextInt(subTasks.size()));
+                subTask.setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+            } else {
+                subTasks.get(random.nextInt(subTasks.size())).setStartTime(base.plusMinutes(random.nextInt(1000)));
+            }
+            TaskStatus status = epic1.getStatus();
+            LocalDateTime startTime = epic1.getStartTime();
+            LocalDateTime endTime = epic1.getEndTime();
+            Duration duration = epic1.getDuration();
+            epic1.updateStatusAndTime();
+
+            assertEquals(epic1.getStatus(), status, "Статус не совпадает с полным пересчетом");
+            assertEquals(epic1.getStartTime(), startTime, "Время начала не совпадает с полным пересчетом");
+            assertEquals(epic1.getEndTime(), endTime, "Время окончания не совпадает с полным пересчетом");
+            assertEquals(epic1.getDuration(), duration);
+        }
+    }
+
+    @Test
+    public void shouldSnapshotConsistentStateWhileSubtasksChange() throws Exception {
+        Epic epic1 = new Epic(222, "Эпик10", "Описание10");
+        LocalDateTime base = LocalDateTime.of(2024, 7, 24, 0, 0);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            // эпик изменяет один поток, как под блокировкой полосы в ConcurrentTaskManager
+            Future<?> writer = executor.submit(() -> {
+                try {
+                    Random random = new Random(5);
+                    List<SubTask> subTasks = new ArrayList<>();
+                    for (int i = 0; i < 20000; i++) {
+                        if (subTasks.isEmpty() || random.nextInt(3) > 0) {
+                            SubTask subTask = new SubTask(epic1, 1000 + i, "Подзадача " + i, "Описание " + i,
+                                    base.plusMinutes(random.nextInt(1000)), Duration.ofMinutes(1 + random.nextInt(60)));
+                            subTask.setStatus(TaskStatus.values()[random.nextInt(TaskStatus.values().length)]);
+                            subTasks.add(subTask);
+                            epic1.addSubTask(subTask);
+                        } else {
+                            epic1.deleteSubTask(subTasks.remove(random.nextInt(subTasks.size())));
+                        }
+                    }
+                } finally {
+                    writing.set(false);
+                }
+            });
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        Epic snapshot = epic1.snapshot();
+                        TaskStatus status = snapshot.getStatus();
+                        LocalDateTime startTime = snapshot.getStartTime();
+                        LocalDateTime endTime = snapshot.getEndTime();
+                        snapshot.updateStatusAndTime();
+
+                        assertEquals(snapshot.getStatus(), status, "Статус копии не соответствует ее подзадачам");
+                        assertEquals(snapshot.getStartTime(), startTime, "Время начала копии не соответствует ее подзадачам");
+                        assertEquals(snapshot.getEndTime(), endTime, "Время окончания копии не соответствует ее подзадачам");
+                    }
+                }));
+            }
+            writer.get();
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class CompactTaskManagerTest extends TaskManagerTest {
+
+    @Override
+    @BeforeEach
+    public void beforeEach() {
+        super.beforeEach();
+        manager = new CompactTaskManager();
+    }
+
+    @Override
+    protected void setTaskCounter(int taskCounter) {
+        ((CompactTaskManager) manager).setTaskCounter(taskCounter);
+    }
+
+    // Менеджер хранит копии полей задач, поэтому смена статуса сохраняется только через update*
+    @Override
+    @Test
+    public void shouldGetTasksByStatus() {
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubTask(subTask);
+        manager.addSubTask(subTask2);
+
+        subTask.setStatus(TaskStatus.IN_PROGRESS);
+        assertEquals(0, manager.getTasksByStatus(TaskStatus.IN_PROGRESS, null).size(),
+                "Изменение задачи попало в менеджер без обновления");
+        manager.updateSubTask(subTask);
+        assertEquals(List.of(subTask), manager.getTasksByStatus(TaskStatus.IN_PROGRESS, TaskType.SUBTASK));
+        assertEquals(List.of(epic), manager.getTasksByStatus(TaskStatus.IN_PROGRESS, TaskType.EPIC));
+        assertEquals(List.of(task), manager.getTasksByStatus(TaskStatus.NEW, TaskType.TASK));
+
+        subTask.setStatus(TaskStatus.DONE);
+        subTask2.setStatus(TaskStatus.DONE);
+        manager.updateSubTask(subTask);
+        manager.updateSubTask(subTask2);
+        assertEquals(3, manager.getTasksByStatus(TaskStatus.DONE, null).size());
+
+        manager.deleteTaskById(subTask2.getId());
+        assertEquals(List.of(subTask), manager.getTasksByStatus(TaskStatus.DONE, TaskType.SUBTASK));
+    }
+
+    @Test
+    public void shouldReturnCopiesOfStoredTasks() {
+        manager.addTask(task);
+        Task taskFromManager = manager.getTaskById(task.getId());
+        assertNotSame(task, taskFromManager);
+        assertEquals(task.getStartTime(), taskFromManager.getStartTime());
+        assertEquals(task.getDuration(), taskFromManager.getDuration());
+
+        taskFromManager.setName("Новое название");
+        assertEquals(task.getName(), manager.getTaskById(task.getId()).getName());
+        manager.updateTask(taskFromManager);
+        assertEquals("Новое название", manager.getTaskById(task.getId()).getName());
+    }
+}
@@ -0,0 +1,113 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Epic;
+import dc.yandex.kanban.model.SubTask;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTaskStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 7, 24, 0, 0);
+
+    @Test
+    public void shouldKeepFieldsAndSubTasksOfEpic() {
+        CompactTaskStore store = new CompactTaskStore();
+        Epic epic = new Epic(1, "Эпик", null);
+        SubTask subTask = new SubTask(epic, 2, "Подзадача", "Описание", BASE, Duration.ofMinutes(30));
+        subTask.setStatus(TaskStatus.DONE);
+        store.put(epic);
+        store.put(subTask);
+        store.put(new SubTask(epic, 3, "Подзадача 2", "Описание 2"));
+
+        assertEquals(TaskType.SUBTASK, store.getType(2));
+        assertEquals("Подзадача", store.getName(2));
+        assertEquals(TaskStatus.DONE, store.getStatus(2));
+        assertEquals(BASE, store.getStartTime(2));
+        assertEquals(Duration.ofMinutes(30), store.getDuration(2));
+        assertNull(store.getDescription(1));
+        assertArrayEquals(new int[]{2, 3}, store.getSubTaskIds(1));
+
+        store.put(new Epic(1, "Эпик обновленный", "Описание"));
+        assertArrayEquals(new int[]{2, 3}, store.getSubTaskIds(1), "Подзадачи потеряны при замене эпика");
+        store.remove(2);
+        assertArrayEquals(new int[]{3}, store.getSubTaskIds(1));
+        assertEquals("Эпик обновленный", store.getName(1));
+    }
+
+    @Test
+    public void shouldMatchTasksAfterManyReplacementsAndRemovals() {
+        CompactTaskStore store = new CompactTaskStore();
+        Map<Integer, Task> tasks = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 20_000; i++) {
+            int id = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(tasks.remove(id) != null, store.remove(id));
+            } else {
+                Task task = new Task(id, "Задача " + i, "Описание " + "x".repeat(random.nextInt(50)),
+                        BASE.plusMinutes(random.nextInt(10_000)), Duration.ofMinutes(random.nextInt(120)));
+                tasks.put(id, task);
+                store.put(task);
+            }
+        }
+        assertEquals(tasks.size(), store.size());
+        for (Task task : tasks.values()) {
+            assertEquals(task.getName(), store.getName(task.getId()));
+            assertEquals(task.getDescription(), store.getDescription(task.getId()));
+            assertEquals(task.getStartTime(), store.getStartTime(task.getId()));
+        }
+        for (int minute = 0; minute < 10_000; minute += 7) {
+            LocalDateTime start = BASE.plusMinutes(minute);
+            LocalDateTime end = start.plusMinutes(5);
+            boolean expected = tasks.values().stream()
+                    .anyMatch(task -> task.getStartTime().isBefore(end) && task.getEndTime().isAfter(start));
+            assertEquals(expected, store.overlaps(start, end, -1), "Неверная проверка пересечения в " + start);
+        }
+        assertFalse(store.contains(-1));
+        assertEquals(tasks.size(), store.getIdsByStartTime(null, null).length);
+    }
+
+    @Test
+    public void shouldShrinkOverlapScanBoundAfterLongTaskRemoved() {
+        CompactTaskStore store = new CompactTaskStore();
+        store.put(new Task(1, "Задача 1", "Описание", BASE, Duration.ofMinutes(30)));
+        store.put(new Task(2, "Задача 2", "Описание", BASE.plusHours(1), Duration.ofDays(365)));
+        store.put(new Task(3, "Задача 3", "Описание", BASE.plusHours(2), Duration.ofMinutes(30)));
+        assertEquals(Duration.ofDays(365).toMinutes(), store.getMaxDurationMinutes());
+
+        store.remove(2);
+        assertEquals(30, store.getMaxDurationMinutes(), "Граница просмотра не уменьшилась после удаления");
+        assertTrue(store.overlaps(BASE.plusMinutes(10), BASE.plusMinutes(20), 0));
+        assertFalse(store.overlaps(BASE.plusHours(1), BASE.plusHours(2), 0));
+
+        store.put(new Task(3, "Задача 3", "Описание", BASE.plusHours(2), Duration.ofMinutes(10)));
+        assertEquals(30, store.getMaxDurationMinutes(), "Одинаковые продолжительности учтены не все");
+        store.remove(1);
+        assertEquals(10, store.getMaxDurationMinutes());
+    }
+
+    @Test
+    public void shouldRejectDurationThatDoesNotFitInMinutes() {
+        CompactTaskStore store = new CompactTaskStore();
+        store.put(new Task(1, "Задача", "Описание", BASE, Duration.ofMinutes(30)));
+
+        assertThrows(IllegalArgumentException.class, () -> store.put(
+                new Task(1, "Задача", "Описание", BASE, Duration.ofMinutes(Integer.MAX_VALUE + 1L))));
+        assertEquals(Duration.ofMinutes(30), store.getDuration(1), "Задача потеряна при отклоненной замене");
+    }
+}
@@ -0,0 +1,64 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrentHistoryManagerTest {
+
+    @Test
+    public void shouldKeepOrderAndRemovalsOfOneThread() {
+        HistoryManager manager = new ConcurrentHistoryManager(new InMemoryHistoryManager());
+        Task deletedTask = new Task(1, "Задача 1", "Описание 1");
+        for (int i = 1; i <= 200; i++) {
+            manager.add(i == 1 ? deletedTask : new Task(i, "Задача " + i, "Описание " + i));
+        }
+        manager.add(new Task(5, "Задача 5", "Описание 5")); // повторный просмотр переносит задачу в конец
+        manager.remove(7);
+        manager.add(deletedTask);
+        deletedTask.clearData(); // задача удалена из менеджера, пока просмотр ждал в буфере
+
+        List<Task> history = manager.getHistory();
+        assertEquals(198, history.size());
+        assertEquals(2, history.get(0).getId());
+        assertEquals(5, history.get(history.size() - 1).getId());
+    }
+
+    @Test
+    public void shouldRecordViewsFromManyThreads() throws Exception {
+        HistoryManager manager = new ConcurrentHistoryManager(new InMemoryHistoryManager());
+        int threads = 8;
+        int viewsPerThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < viewsPerThread; i++) {
+                        int id = 1 + thread * 1000 + i % 1000;
+                        manager.add(new Task(id, "Задача " + id, "Описание"));
+                        if (i % 500 == 0) manager.getHistory();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Task> history = manager.getHistory();
+        assertEquals(threads * 1000, history.size());
+        assertEquals(history.size(), new HashSet<>(history).size(), "В истории есть повторы");
+    }
+}
@@ -0,0 +1,293 @@
+package dc.yandex.kanban.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dc.yandex.kanban.model.Epic;
+import dc.yandex.kanban.model.SubTask;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.service.exceptions.TaskNotFoundException;
+import dc.yandex.kanban.service.server.adapters.LocalDateTimeAdapter;
+import dc.yandex.kanban.service.server.handlers.BaseHttpHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest {
+
+    @Override
+    @BeforeEach
+    public void beforeEach() {
+        super.beforeEach();
+        manager = new ConcurrentTaskManager();
+    }
+
+    @Test
+    public void shouldKeepStateConsistentUnderConcurrentAccess() throws Exception {
+        int threads = 4;
+        int subTasksPerThread = 500;
+        LocalDateTime base = LocalDateTime.of(2024, 7, 24, 0, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    Epic threadEpic = manager.createNewEpic("Эпик потока " + thread, "Описание");
+                    manager.addEpic(threadEpic);
+                    for (int i = 0; i < subTasksPerThread; i++) {
+                        SubTask threadSubTask = manager.createNewSubtask(threadEpic, "Подзадача " + i, "Описание",
+                                base.plusMinutes((long) (thread * subTasksPerThread + i) * 10), Duration.ofMinutes(10));
+                        threadSubTask.setStatus(TaskStatus.DONE);
+                        manager.addSubTask(threadSubTask);
+                    }
+                }));
+                // читатели обращаются к задачам, пока они добавляются
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < subTasksPerThread * 4; i++) {
+                        try {
+                            Task found = manager.getTaskById(1 + (i % (threads * (subTasksPerThread + 1))));
+                            assertNotNull(found.getName());
+                        } catch (TaskNotFoundException e) {
+                            // задача еще не добавлена
+                        }
+                        manager.getTasks();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(threads, manager.getEpics().size());
+        assertEquals(threads * subTasksPerThread, manager.getSubTasks().size());
+        assertEquals(threads * subTasksPerThread, manager.getPrioritizedTasks().size());
+        for (Epic threadEpic : manager.getEpics()) {
+            assertEquals(subTasksPerThread, threadEpic.getSubTasks().size());
+            assertEquals(TaskStatus.DONE, threadEpic.getStatus());
+        }
+    }
+
+    @Test
+    public void shouldKeepEpicsConsistentWithParallelSubTaskWriters() throws Exception {
+        int epics = 4;
+        int writersPerEpic = 2;
+        int subTasksPerWriter = 300;
+        LocalDateTime base = LocalDateTime.of(2024, 7, 24, 0, 0);
+        List<Epic> createdEpics = new ArrayList<>();
+        for (int e = 0; e < epics; e++) {
+            Epic createdEpic = manager.createNewEpic("Эпик " + e, "Описание");
+            manager.addEpic(createdEpic);
+            createdEpics.add(createdEpic);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(epics * writersPerEpic);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < epics * writersPerEpic; w++) {
+                int writer = w;
+                Epic writerEpic = createdEpics.get(w % epics);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < subTasksPerWriter; i++) {
+                        SubTask writerSubTask = manager.createNewSubtask(writerEpic, "Подзадача " + i, "Описание",
+                                base.plusMinutes((long) (writer * subTasksPerWriter + i) * 10), Duration.ofMinutes(10));
+                        writerSubTask.setStatus(i % 3 == 0 ? TaskStatus.DONE : TaskStatus.NEW);
+                        manager.addSubTask(writerSubTask);
+                        if (i % 4 == 0) {
+                            manager.deleteTaskById(writerSubTask.getId()); // удаление через полосу эпика
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        int expectedPerEpic = writersPerEpic * (subTasksPerWriter - (subTasksPerWriter + 3) / 4);
+        assertEquals(epics * expectedPerEpic, manager.getSubTasks().size());
+        for (Epic createdEpic : createdEpics) {
+            List<SubTask> epicSubTasks = manager.getEpicSubTasksById(createdEpic.getId());
+            assertEquals(expectedPerEpic, epicSubTasks.size());
+            TaskStatus status = createdEpic.getStatus();
+            LocalDateTime startTime = createdEpic.getStartTime();
+            LocalDateTime endTime = createdEpic.getEndTime();
+            createdEpic.updateStatusAndTime();
+            assertEquals(createdEpic.getStatus(), status, "Статус эпика не совпадает с полным пересчетом");
+            assertEquals(createdEpic.getStartTime(), startTime);
+            assertEquals(createdEpic.getEndTime(), endTime);
+            assertEquals(List.of(createdEpic), manager.getTasksByStatus(status, null).stream()
+                    .filter(createdEpic::equals).collect(Collectors.toList()), "Эпик потерян в индексе по статусам");
+        }
+    }
+
+    @Test
+    public void shouldSerializeEpicsWhileSubTasksChange() throws Exception {
+        int writers = 4;
+        int subTasksPerWriter = 300;
+        LocalDateTime base = LocalDateTime.of(2024, 7, 24, 0, 0);
+        Gson gson = BaseHttpHandler.getDefaultGson();
+        Epic sharedEpic = manager.createNewEpic("Эпик", "Описание");
+        manager.addEpic(sharedEpic);
+        Map<Integer, SubTask> added = new ConcurrentHashMap<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        try {
+            List<Future<?>> writerFutures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                writerFutures.add(executor.submit(() -> {
+                    for (int i = 0; i < subTasksPerWriter; i++) {
+                        SubTask writerSubTask = manager.createNewSubtask(sharedEpic, "Подзадача " + i, "Описание",
+                                base.plusMinutes((long) (writer * subTasksPerWriter + i) * 10), Duration.ofMinutes(10));
+                        writerSubTask.setStatus(i % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW);
+                        added.put(writerSubTask.getId(), writerSubTask);
+                        manager.addSubTask(writerSubTask);
+                        if (i % 3 == 0) {
+                            manager.deleteTaskById(writerSubTask.getId());
+                        }
+                    }
+                }));
+            }
+            // читатели сериализуют эпики так же, как обработчики HTTP-сервера, без блокировок менеджера
+            List<Future<?>> readerFutures = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readerFutures.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        JsonArray epics = JsonParser.parseString(gson.toJson(manager.getEpics())).getAsJsonArray();
+                        assertEquals(1, epics.size());
+                        JsonObject epic = epics.get(0).getAsJsonObject();
+                        List<SubTask> listed = new ArrayList<>();
+                        epic.getAsJsonArray("subTasks").forEach(id -> listed.add(added.get(id.getAsInt())));
+                        assertEquals(expectedStatus(listed), TaskStatus.valueOf(epic.get("status").getAsString()),
+                                "Статус эпика не соответствует его подзадачам");
+                        if (listed.isEmpty()) {
+                            assertTrue(epic.get("startTime").isJsonNull());
+                            continue;
+                        }
+                        LocalDateTime startTime = listed.stream().map(SubTask::getStartTime)
+                                .min(LocalDateTime::compareTo).orElseThrow();
+                        LocalDateTime endTime = listed.stream().map(SubTask::getEndTime)
+                                .max(LocalDateTime::compareTo).orElseThrow();
+                        assertEquals(startTime.format(LocalDateTimeAdapter.defaultDateTimeFormatter), epic.get("startTime").getAsString(),
+                                "Время начала эпика не соответствует его подзадачам");
+                        assertEquals(Duration.between(startTime, endTime).toMinutes(), epic.get("duration").getAsLong(),
+                                "Продолжительность эпика не соответствует его подзадачам");
+                    }
+                }));
+            }
+            for (Future<?> future : writerFutures) {
+                future.get();
+            }
+            writing.set(false);
+            for (Future<?> future : readerFutures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        JsonObject epic = JsonParser.parseString(gson.toJson(manager.getTaskById(sharedEpic.getId()))).getAsJsonObject();
+        assertEquals(writers * (subTasksPerWriter - subTasksPerWriter / 3), epic.getAsJsonArray("subTasks").size());
+    }
+
+    @Test
+    public void shouldLinkSubTaskToEpicBeforeItBecomesVisible() throws Exception {
+        // эпик, который медленно связывает подзадачу: читатель успевает обратиться к менеджеру в это время
+        Epic slowEpic = new Epic(manager.createNewEpic("Эпик", "Описание").getId(), "Эпик", "Описание") {
+            @Override
+            public void addSubTask(SubTask subTask) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.addSubTask(subTask);
+            }
+        };
+        manager.addEpic(slowEpic);
+        SubTask added = manager.createNewSubtask(slowEpic, "Подзадача", "Описание",
+                LocalDateTime.of(2024, 7, 24, 10, 0), Duration.ofMinutes(10));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> manager.addSubTask(added));
+            List<SubTask> visible;
+            do {
+                visible = manager.getSubTasks();
+            } while (visible.isEmpty() && !writer.isDone());
+
+            Epic snapshot = slowEpic.snapshot();
+            assertTrue(snapshot.getSubTaskMap().containsKey(added.getId()), "Подзадача видна раньше, чем появилась в эпике");
+            assertEquals(added.getStartTime(), snapshot.getStartTime(), "Время подзадачи не учтено во времени эпика");
+            assertEquals(added, manager.getTaskById(added.getId()));
+            writer.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldApplyDirectSubTaskChangesUnderEpicLock() throws Exception {
+        int threads = 4;
+        int subTasksPerThread = 200;
+        Epic sharedEpic = manager.createNewEpic("Эпик", "Описание");
+        manager.addEpic(sharedEpic);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<SubTask> own = new ArrayList<>();
+                    for (int i = 0; i < subTasksPerThread; i++) {
+                        SubTask created = manager.createNewSubtask(sharedEpic, "Подзадача " + i, "Описание");
+                        manager.addSubTask(created);
+                        own.add(created);
+                        // изменение общей подзадачи напрямую, в обход updateSubTask
+                        own.get(i / 2).setStatus(i % 2 == 0 ? TaskStatus.DONE : TaskStatus.IN_PROGRESS);
+                    }
+                    own.forEach(subTask -> subTask.setStatus(TaskStatus.DONE));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(TaskStatus.DONE, sharedEpic.getStatus());
+        sharedEpic.updateStatusAndTime();
+        assertEquals(TaskStatus.DONE, sharedEpic.getStatus(), "Статус эпика не совпадает с полным пересчетом");
+        assertEquals(List.of(sharedEpic), manager.getTasksByStatus(TaskStatus.DONE, null).stream()
+                .filter(sharedEpic::equals).collect(Collectors.toList()), "Эпик потерян в индексе по статусам");
+    }
+
+    private static TaskStatus expectedStatus(List<SubTask> subTasks) {
+        boolean hasNew = subTasks.stream().anyMatch(subTask -> subTask.getStatus() == TaskStatus.NEW);
+        boolean hasDone = subTasks.stream().anyMatch(subTask -> subTask.getStatus() == TaskStatus.DONE);
+        if (hasNew && hasDone) return TaskStatus.IN_PROGRESS;
+        return hasDone ? TaskStatus.DONE : TaskStatus.NEW;
+    }
+}
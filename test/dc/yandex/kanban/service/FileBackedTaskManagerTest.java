@@ -3,16 +3,34 @@ package dc.yandex.kanban.service;
 import dc.yandex.kanban.model.Epic;
 import dc.yandex.kanban.model.SubTask;
 import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.service.exceptions.ManagerSaveException;
+import dc.yandex.kanban.service.storage.BinarySnapshot;
+import dc.yandex.kanban.service.storage.DurabilityPolicy;
+import dc.yandex.kanban.service.storage.PersistenceMode;
+import dc.yandex.kanban.service.storage.PersistenceStats;
+import dc.yandex.kanban.service.storage.SnapshotFormat;
+import dc.yandex.kanban.service.storage.StorageSettings;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest {
     private File tmpFile;
@@ -24,12 +42,46 @@ public class FileBackedTaskManagerTest extends TaskManagerTest {
         try {
             tmpFile = File.createTempFile("test_", ".txt");
             manager = new FileBackedTaskManager(tmpFile.getAbsolutePath());
+            Paths.get(tmpFile.getAbsolutePath() + ".history").toFile().deleteOnExit();
             System.out.println(tmpFile.getAbsolutePath());
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    @Test
+    public void shouldSyncSnapshotWithoutJournalDurability() {
+        FileBackedTaskManager fileManager = (FileBackedTaskManager) manager;
+        long syncs = fileManager.getPersistenceStats().getSyncCount();
+        manager.addTask(manager.createNewTask("Задача", "Описание"));
+
+        // снимок и каталог сбрасываются на диск и при политике надежности none()
+        assertTrue(fileManager.getPersistenceStats().getSyncCount() > syncs, "Снимок не сброшен на диск");
+    }
+
+    @Test
+    public void shouldRefuseToOverwritePersistedStateInJournalMode() throws IOException {
+        Task managerTask = manager.createNewTask("Задача", "Описание");
+        manager.addTask(managerTask);
+        byte[] saved = Files.readAllBytes(tmpFile.toPath());
+
+        assertThrows(ManagerSaveException.class,
+                () -> new FileBackedTaskManager(tmpFile.getAbsolutePath(), PersistenceMode.JOURNAL),
+                "Новый менеджер затер сохраненные задачи");
+        assertArrayEquals(saved, Files.readAllBytes(tmpFile.toPath()), "Снимок изменен без изменения задач");
+        assertFalse(Files.exists(Paths.get(tmpFile.getAbsolutePath() + ".log")), "Журнал создан без изменения задач");
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, PersistenceMode.JOURNAL);
+        assertEquals(managerTask, restored.getTaskById(managerTask.getId()));
+        restored.close();
+        Paths.get(tmpFile.getAbsolutePath() + ".log").toFile().deleteOnExit();
+
+        // после загрузки в режиме журнала рядом со снимком есть журнал - он тоже защищен
+        assertThrows(ManagerSaveException.class,
+                () -> new FileBackedTaskManager(tmpFile.getAbsolutePath(), PersistenceMode.JOURNAL));
+        assertEquals(managerTask, FileBackedTaskManager.loadFromFile(tmpFile).getTaskById(managerTask.getId()));
+    }
+
     @Test
     public void shouldSaveToFile() {
         Task managerTask = manager.createNewTask("Задача 1 создана менеджером", "Описание 1");
@@ -103,4 +155,432 @@ public class FileBackedTaskManagerTest extends TaskManagerTest {
         }
     }
 
+    @Test
+    public void shouldAppendJournalRecordPerChange() throws IOException {
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(),
+                PersistenceMode.JOURNAL);
+        Path journalPath = Paths.get(tmpFile.getAbsolutePath() + ".log");
+        journalPath.toFile().deleteOnExit();
+
+        Task managerTask = journalManager.createNewTask("Задача 1 создана менеджером", "Описание 1");
+        journalManager.addTask(managerTask);
+        managerTask.setStatus(TaskStatus.IN_PROGRESS);
+        journalManager.updateTask(managerTask);
+        journalManager.deleteTaskById(managerTask.getId());
+        journalManager.close();
+
+        // снимок не перезаписывается, в журнале по одной строке на изменение
+        assertEquals(1, Files.readAllLines(tmpFile.toPath()).size());
+        List<String> records = Files.readAllLines(journalPath);
+        assertEquals(3, records.size());
+        assertTrue(records.get(0).startsWith("PUT,"));
+        assertTrue(records.get(2).startsWith("DEL,"));
+    }
+
+    @Test
+    public void shouldRestoreFromJournal() {
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(),
+                PersistenceMode.JOURNAL);
+        Paths.get(tmpFile.getAbsolutePath() + ".log").toFile().deleteOnExit();
+
+        Task managerTask = journalManager.createNewTask("Задача 1 создана менеджером", "Описание 1");
+        Task deletedTask = journalManager.createNewTask("Задача 2 будет удалена", "Описание 2");
+        Epic managerEpic = journalManager.createNewEpic("Эпик 3 создан менеджером", "Описание 3");
+        SubTask managerSubTask = journalManager.createNewSubtask(managerEpic,
+                "Подзадача 4 создана менеджером", "Описание 4");
+        journalManager.addTask(managerTask);
+        journalManager.addTask(deletedTask);
+        journalManager.addEpic(managerEpic);
+        journalManager.addSubTask(managerSubTask);
+        managerSubTask.setStatus(TaskStatus.DONE);
+        journalManager.updateSubTask(managerSubTask);
+        journalManager.deleteTaskById(deletedTask.getId());
+        journalManager.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, PersistenceMode.JOURNAL);
+
+        assertEquals(1, restored.getTasks().size());
+        assertEquals(managerTask, restored.getTaskById(managerTask.getId()));
+        assertEquals(TaskStatus.DONE, restored.getTaskById(managerSubTask.getId()).getStatus());
+        assertEquals(TaskStatus.DONE, restored.getTaskById(managerEpic.getId()).getStatus());
+        assertThrows(RuntimeException.class, () -> restored.getTaskById(deletedTask.getId()));
+        restored.close();
+    }
+
+    @Test
+    public void shouldCompactJournalByThreshold() throws IOException {
+        StorageSettings settings = StorageSettings.defaults()
+                .withPersistenceMode(PersistenceMode.JOURNAL)
+                .withCompactionThresholds(3, 0);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+        Path journalPath = Paths.get(tmpFile.getAbsolutePath() + ".log");
+        journalPath.toFile().deleteOnExit();
+
+        for (int i = 0; i < 10; i++) {
+            journalManager.addTask(journalManager.createNewTask("Задача " + i, "Описание " + i));
+        }
+        journalManager.deleteTaskById(1);
+        // фоновые сжатия по порогу выполняются раньше запрошенного явно
+        journalManager.compact();
+        journalManager.close();
+
+        assertTrue(journalManager.getPersistenceStats().getCompactionCount() > 1, "Журнал не сжимался по порогу");
+        assertEquals(0, Files.readAllLines(journalPath).size(), "Журнал не очищен после сжатия");
+        assertEquals(10, Files.readAllLines(tmpFile.toPath()).size(), "Снимок не записан при сжатии");
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, settings);
+        assertEquals(9, restored.getTasks().size());
+        assertEquals(0, restored.getPersistenceStats().getReplayedRecords());
+        restored.close();
+    }
+
+    @Test
+    public void shouldKeepWritesMadeDuringCompaction() throws Exception {
+        StorageSettings settings = StorageSettings.defaults()
+                .withPersistenceMode(PersistenceMode.JOURNAL)
+                .withCompactionThresholds(5, 0);
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+        Paths.get(tmpFile.getAbsolutePath() + ".log").toFile().deleteOnExit();
+        // явные сжатия идут вперемешку с записями и сжатиями по порогу
+        int added = addTasksWhileCompacting(journalManager);
+        journalManager.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, settings);
+        assertEquals(added, restored.getTasks().size(), "Записи потеряны при сжатии журнала");
+        assertTrue(restored.getTasks().stream().allMatch(task -> task.getStatus() == TaskStatus.DONE),
+                "Изменения потеряны при сжатии");
+        restored.close();
+    }
+
+    @Test
+    public void shouldKeepSegmentsWrittenDuringCompaction() throws Exception {
+        StorageSettings settings = StorageSettings.defaults()
+                .withPersistenceMode(PersistenceMode.SEGMENTED)
+                .withSegmentSize(1);
+        FileBackedTaskManager segmentedManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+        int added = addTasksWhileCompacting(segmentedManager);
+        segmentedManager.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, settings);
+        assertEquals(added, restored.getTasks().size(), "Сегменты потеряны при полной перезаписи");
+        assertTrue(restored.getTasks().stream().allMatch(task -> task.getStatus() == TaskStatus.DONE),
+                "Изменения потеряны при сжатии");
+        restored.close();
+    }
+
+    // Добавляет и завершает задачи из нескольких потоков, пока текущий поток сжимает хранилище.
+    // Возвращает число задач
+    private int addTasksWhileCompacting(FileBackedTaskManager fileManager) throws Exception {
+        int threads = 4;
+        int tasksPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < tasksPerThread; i++) {
+                    Task task = fileManager.createNewTask("Задача " + i, "Описание " + i);
+                    fileManager.addTask(task);
+                    // изменение должно пережить сжатие, зафиксировавшее задачу до него
+                    Task changedTask = new Task(task.getId(), task.getName(), task.getDescription());
+                    changedTask.setStatus(TaskStatus.DONE);
+                    fileManager.updateTask(changedTask);
+                }
+            }));
+        }
+        while (!writers.stream().allMatch(Future::isDone)) {
+            fileManager.compact();
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+        return threads * tasksPerThread;
+    }
+
+    @Test
+    public void shouldGroupSyncsOfConcurrentWriters() throws Exception {
+        StorageSettings settings = StorageSettings.defaults()
+                .withPersistenceMode(PersistenceMode.JOURNAL)
+                .withDurability(DurabilityPolicy.groupCommit(20, 8));
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+        Paths.get(tmpFile.getAbsolutePath() + ".log").toFile().deleteOnExit();
+        int threads = 8;
+        int tasksPerThread = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < tasksPerThread; i++) {
+                    journalManager.addTask(journalManager.createNewTask("Задача " + i, "Описание " + i));
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        executor.shutdown();
+        journalManager.close();
+
+        PersistenceStats stats = journalManager.getPersistenceStats();
+        assertEquals(threads * tasksPerThread, stats.getAppendCount());
+        // сброс на диск ожидается без блокировки менеджера, поэтому записи разных потоков попадают в одну группу
+        assertTrue(stats.getSyncCount() < stats.getAppendCount(),
+                "Сброс на диск не объединялся: " + stats.getSyncCount() + " из " + stats.getAppendCount());
+    }
+
+    @Test
+    public void shouldRestoreFromBinarySnapshot() throws IOException {
+        StorageSettings settings = StorageSettings.defaults().withSnapshotFormat(SnapshotFormat.BINARY);
+        FileBackedTaskManager binaryManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+        LocalDateTime startTime = LocalDateTime.of(2024, 5, 1, 10, 0);
+
+        Task managerTask = binaryManager.createNewTask("Задача 1", "Описание 1", startTime,
+                Duration.ofMinutes(30));
+        Epic managerEpic = binaryManager.createNewEpic("Эпик 2", "Описание 2");
+        SubTask managerSubTask = binaryManager.createNewSubtask(managerEpic, "Подзадача 3", "Описание 3",
+                startTime.plusHours(1), Duration.ofMinutes(45));
+        binaryManager.addTask(managerTask);
+        binaryManager.addEpic(managerEpic);
+        binaryManager.addSubTask(managerSubTask);
+        managerSubTask.setStatus(TaskStatus.IN_PROGRESS);
+        binaryManager.updateSubTask(managerSubTask);
+
+        assertTrue(BinarySnapshot.isBinarySnapshot(tmpFile.toPath()));
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, settings);
+        Task restoredTask = restored.getTaskById(managerTask.getId());
+        assertEquals("Описание 1", restoredTask.getDescription());
+        assertEquals(startTime, restoredTask.getStartTime());
+        assertEquals(Duration.ofMinutes(30), restoredTask.getDuration());
+        assertEquals(TaskStatus.IN_PROGRESS, restored.getTaskById(managerSubTask.getId()).getStatus());
+        assertEquals(TaskStatus.IN_PROGRESS, restored.getTaskById(managerEpic.getId()).getStatus());
+        assertEquals(startTime.plusHours(1), restored.getTaskById(managerEpic.getId()).getStartTime());
+        assertEquals(2, restored.getPrioritizedTasks().size());
+
+        // выгрузка в CSV для совместимости и загрузка из нее
+        File csvFile = File.createTempFile("test_", ".csv");
+        csvFile.deleteOnExit();
+        restored.exportToCsv(csvFile);
+        assertEquals(4, Files.readAllLines(csvFile.toPath()).size());
+        FileBackedTaskManager restoredFromCsv = FileBackedTaskManager.loadFromFile(csvFile);
+        assertEquals(2, restoredFromCsv.getPrioritizedTasks().size());
+        assertEquals(TaskStatus.IN_PROGRESS, restoredFromCsv.getTaskById(managerEpic.getId()).getStatus());
+    }
+
+    @Test
+    public void shouldRestoreInBulkWithoutHistory() {
+        LocalDateTime startTime = LocalDateTime.of(2024, 5, 1, 10, 0);
+        Epic managerEpic = manager.createNewEpic("Эпик 1", "Описание 1");
+        manager.addEpic(managerEpic);
+        for (int i = 0; i < 50; i++) {
+            manager.addSubTask(manager.createNewSubtask(managerEpic, "Подзадача " + i, "Описание",
+                    startTime.plusHours(i), Duration.ofMinutes(30)));
+        }
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+
+        assertTrue(restored.getHistory().isEmpty(), "Загрузка не должна попадать в историю просмотров");
+        assertEquals(50, restored.getSubTasks().size());
+        assertEquals(50, restored.getPrioritizedTasks().size());
+        assertEquals(startTime, restored.getPrioritizedTasks().get(0).getStartTime());
+        Epic restoredEpic = (Epic) restored.getTaskById(managerEpic.getId());
+        assertEquals(50, restoredEpic.getSubTasks().size());
+        assertEquals(startTime.plusHours(49).plusMinutes(30), restoredEpic.getEndTime());
+    }
+
+    @Test
+    public void shouldKeepDelimitersInNamesAndDescriptions() throws IOException {
+        Task managerTask = manager.createNewTask("Задача, с запятой", "Описание \"в кавычках\"\nна двух строках");
+        manager.addTask(managerTask);
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+        Task restoredTask = restored.getTaskById(managerTask.getId());
+        assertEquals(managerTask.getName(), restoredTask.getName());
+        assertEquals(managerTask.getDescription(), restoredTask.getDescription());
+
+        File journalFile = File.createTempFile("test_", ".txt");
+        journalFile.deleteOnExit();
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(journalFile.getAbsolutePath(),
+                PersistenceMode.JOURNAL);
+        Paths.get(journalFile.getAbsolutePath() + ".log").toFile().deleteOnExit();
+        Task journalTask = journalManager.createNewTask("Еще, одна", "Описание\nс переводом строки");
+        journalManager.addTask(journalTask);
+        journalManager.close();
+
+        FileBackedTaskManager restoredFromJournal = FileBackedTaskManager.loadFromFile(journalFile,
+                PersistenceMode.JOURNAL);
+        assertEquals(1, restoredFromJournal.getPersistenceStats().getReplayedRecords());
+        assertEquals(journalTask.getDescription(), restoredFromJournal.getTaskById(journalTask.getId()).getDescription());
+        restoredFromJournal.close();
+    }
+
+    @Test
+    public void shouldCoalesceAsynchronousWrites() throws IOException {
+        StorageSettings settings = StorageSettings.defaults()
+                .withPersistenceMode(PersistenceMode.ASYNC)
+                .withAsyncWriteDelay(50);
+        FileBackedTaskManager asyncManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+
+        for (int i = 0; i < 100; i++) {
+            asyncManager.addTask(asyncManager.createNewTask("Задача " + i, "Описание " + i));
+        }
+        asyncManager.flush();
+
+        assertEquals(101, Files.readAllLines(tmpFile.toPath()).size(), "Снимок не записан после flush");
+        assertEquals(100, asyncManager.getPersistenceStats().getCoalescedChanges());
+        assertTrue(asyncManager.getPersistenceStats().getAsyncWriteCount() < 100,
+                "Серия изменений должна записываться меньшим числом снимков");
+
+        asyncManager.deleteTaskById(1);
+        asyncManager.close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+        assertEquals(99, restored.getTasks().size(), "При закрытии должны записываться оставшиеся изменения");
+    }
+
+    @Test
+    public void shouldRecoverFromPreviousSnapshotWhenChecksumFails() throws IOException {
+        Paths.get(tmpFile.getAbsolutePath() + ".bak").toFile().deleteOnExit();
+        Paths.get(tmpFile.getAbsolutePath() + ".corrupted").toFile().deleteOnExit();
+        manager.addTask(manager.createNewTask("Задача 1", "Описание 1"));
+        manager.addTask(manager.createNewTask("Задача 2", "Описание 2"));
+        corruptSnapshot();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+
+        assertEquals(1, restored.getPersistenceStats().getRecoveryCount());
+        assertEquals(1, restored.getTasks().size(), "Должен загрузиться предыдущий снимок");
+        assertEquals("Задача 1", restored.getTaskById(1).getName());
+    }
+
+    @Test
+    public void shouldReplayRetiredJournalsWhenRecovering() throws IOException {
+        String path = tmpFile.getAbsolutePath();
+        for (String suffix : List.of(".bak", ".corrupted", ".log", ".log.bak", ".log.1.bak")) {
+            Paths.get(path + suffix).toFile().deleteOnExit();
+        }
+        FileBackedTaskManager journalManager = new FileBackedTaskManager(path, PersistenceMode.JOURNAL);
+        for (int i = 0; i < 3; i++) {
+            journalManager.addTask(journalManager.createNewTask("Задача " + i, "Описание " + i));
+        }
+        journalManager.compact();
+        for (int i = 3; i < 5; i++) {
+            journalManager.addTask(journalManager.createNewTask("Задача " + i, "Описание " + i));
+        }
+        journalManager.close();
+        corruptSnapshot();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, PersistenceMode.JOURNAL);
+
+        assertEquals(1, restored.getPersistenceStats().getRecoveryCount());
+        assertEquals(5, restored.getTasks().size(), "Журналы должны дополнить предыдущий снимок");
+        restored.close();
+    }
+
+    // Портит строку задачи в снимке, не меняя его структуру
+    @Test
+    public void shouldRecoverFromPreviousSnapshotWhenFileTruncated() throws IOException {
+        Paths.get(tmpFile.getAbsolutePath() + ".bak").toFile().deleteOnExit();
+        Paths.get(tmpFile.getAbsolutePath() + ".corrupted").toFile().deleteOnExit();
+        manager.addTask(manager.createNewTask("Задача 1", "Описание 1"));
+        manager.addTask(manager.createNewTask("Задача 2", "Описание 2"));
+        // файл оборван внутри заголовка, контрольной суммы в нем нет
+        byte[] content = Files.readAllBytes(tmpFile.toPath());
+        Files.write(tmpFile.toPath(), Arrays.copyOf(content, 10));
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+
+        assertEquals(1, restored.getPersistenceStats().getRecoveryCount());
+        assertEquals(1, restored.getTasks().size(), "Должен загрузиться предыдущий снимок");
+        assertTrue(Files.exists(Paths.get(tmpFile.getAbsolutePath() + ".corrupted")));
+    }
+
+    @Test
+    public void shouldRecoverFromPreviousSnapshotWhenFileEmpty() throws IOException {
+        Paths.get(tmpFile.getAbsolutePath() + ".bak").toFile().deleteOnExit();
+        Paths.get(tmpFile.getAbsolutePath() + ".corrupted").toFile().deleteOnExit();
+        manager.addTask(manager.createNewTask("Задача 1", "Описание 1"));
+        manager.addTask(manager.createNewTask("Задача 2", "Описание 2"));
+        Files.write(tmpFile.toPath(), new byte[0]);
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+
+        assertEquals(1, restored.getPersistenceStats().getRecoveryCount());
+        assertEquals(1, restored.getTasks().size(), "Пустой файл принят за пустую доску");
+        assertEquals("Задача 1", restored.getTaskById(1).getName());
+    }
+
+    private void corruptSnapshot() throws IOException {
+        List<String> lines = Files.readAllLines(tmpFile.toPath());
+        lines.set(lines.size() - 1, lines.get(lines.size() - 1).replace("Задача", "Зодача"));
+        Files.write(tmpFile.toPath(), lines);
+    }
+
+    @Test
+    public void shouldRewriteOnlyChangedSegments() throws IOException {
+        StorageSettings settings = StorageSettings.defaults()
+                .withPersistenceMode(PersistenceMode.SEGMENTED)
+                .withSegmentSize(10);
+        FileBackedTaskManager segmentedManager = new FileBackedTaskManager(tmpFile.getAbsolutePath(), settings);
+        Path segments = Paths.get(tmpFile.getAbsolutePath() + ".segments");
+
+        for (int i = 0; i < 30; i++) {
+            segmentedManager.addTask(segmentedManager.createNewTask("Задача " + i, "Описание " + i));
+        }
+        Epic epic = segmentedManager.createNewEpic("Эпик 31", "Описание 31");
+        segmentedManager.addEpic(epic);
+        segmentedManager.addSubTask(segmentedManager.createNewSubtask(epic, "Подзадача 32", "Описание 32"));
+        segmentedManager.addSubTask(segmentedManager.createNewSubtask(epic, "Подзадача 33", "Описание 33"));
+        try (Stream<Path> files = Files.list(segments)) {
+            // задачи: id 1-30 в сегментах 0-3, эпик и подзадачи - в сегменте 3 своего типа
+            assertEquals(6, files.count());
+        }
+
+        long segmentWrites = segmentedManager.getPersistenceStats().getSegmentWriteCount();
+        Task changedTask = segmentedManager.getTaskById(25);
+        changedTask.setStatus(TaskStatus.DONE);
+        segmentedManager.updateTask(changedTask);
+        assertEquals(segmentWrites + 1, segmentedManager.getPersistenceStats().getSegmentWriteCount(),
+                "Должен перезаписываться только сегмент измененной задачи");
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile, settings);
+        assertEquals(30, restored.getTasks().size());
+        assertEquals(TaskStatus.DONE, restored.getTaskById(25).getStatus());
+        assertEquals(2, ((Epic) restored.getTaskById(epic.getId())).getSubTasks().size());
+
+        restored.deleteTaskById(epic.getId());
+        FileBackedTaskManager restoredAfterDelete = FileBackedTaskManager.loadFromFile(tmpFile, settings);
+        assertEquals(0, restoredAfterDelete.getSubTasks().size());
+        assertEquals(0, restoredAfterDelete.getEpics().size());
+
+        // в режиме полного снимка состояние переносится из сегментов в файл
+        FileBackedTaskManager restoredToFile = FileBackedTaskManager.loadFromFile(tmpFile, PersistenceMode.SNAPSHOT);
+        assertFalse(Files.exists(segments));
+        assertEquals(30, FileBackedTaskManager.loadFromFile(tmpFile).getTasks().size());
+        assertEquals(30, restoredToFile.getTasks().size());
+    }
+
+    @Test
+    public void shouldRestoreHistory() {
+        Task task1 = manager.createNewTask("Задача 1", "Описание 1");
+        Task task2 = manager.createNewTask("Задача 2", "Описание 2");
+        Task task3 = manager.createNewTask("Задача 3", "Описание 3");
+        manager.addTask(task1);
+        manager.addTask(task2);
+        manager.addTask(task3);
+        manager.getTaskById(task1.getId());
+        manager.getTaskById(task2.getId());
+        manager.getTaskById(task3.getId());
+        manager.getTaskById(task1.getId());
+        manager.deleteTaskById(task3.getId());
+        ((FileBackedTaskManager) manager).close();
+
+        FileBackedTaskManager restored = FileBackedTaskManager.loadFromFile(tmpFile);
+
+        assertEquals(List.of(task2, task1), restored.getHistory());
+        restored.getTaskById(task2.getId());
+        restored.close();
+        assertEquals(List.of(task1, task2), FileBackedTaskManager.loadFromFile(tmpFile).getHistory());
+    }
+
 }
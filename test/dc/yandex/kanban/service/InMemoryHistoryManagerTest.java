@@ -151,4 +151,49 @@ class InMemoryHistoryManagerTest {
         assertEquals(epic, history.get(0));
         assertEquals(subTask, history.get(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldEvictOldestWhenFull() {
+        InMemoryHistoryManager boundedManager = new InMemoryHistoryManager(2);
+        boundedManager.add(task);
+        boundedManager.add(epic);
+        boundedManager.add(task); // повторный просмотр переносит задачу в конец
+        boundedManager.add(subTask);
+        history = boundedManager.getHistory();
+
+        assertEquals(List.of(task, subTask), history, "Вытеснен не самый давний просмотр.");
+        assertEquals(1, boundedManager.getStats().getEvictionCount());
+        assertEquals(2, boundedManager.getStats().getSize());
+
+        boundedManager.remove(task.getId());
+        assertEquals(List.of(subTask), boundedManager.getHistory());
+        assertEquals(1, boundedManager.getStats().getSize());
+        assertEquals(1, boundedManager.getStats().getEvictionCount(), "Удаление учтено как вытеснение.");
+    }
+
+    @Test
+    public void shouldEvictByEstimatedBytes() {
+        InMemoryHistoryManager probe = new InMemoryHistoryManager();
+        probe.add(task);
+        long taskBytes = probe.getStats().getEstimatedBytes();
+
+        InMemoryHistoryManager boundedManager =
+                new InMemoryHistoryManager(InMemoryHistoryManager.UNLIMITED, taskBytes * 2);
+        for (int i = 1; i <= 5; i++) {
+            boundedManager.add(new Task(i, "Задача " + i, "Описание " + i));
+        }
+        history = boundedManager.getHistory();
+
+        assertEquals(2, history.size(), "История превышает ограничение памяти.");
+        assertEquals(4, history.get(0).getId());
+        assertEquals(5, history.get(1).getId());
+        assertEquals(3, boundedManager.getStats().getEvictionCount());
+        assertEquals(taskBytes * 3, boundedManager.getStats().getEvictedBytes());
+        assertEquals(taskBytes * 2, boundedManager.getStats().getEstimatedBytes());
+
+        // задача больше ограничения памяти все равно остается последним просмотром
+        Task bigTask = new Task(6, "Задача 6", "Описание".repeat(100));
+        boundedManager.add(bigTask);
+        assertEquals(List.of(bigTask), boundedManager.getHistory());
+    }
+}
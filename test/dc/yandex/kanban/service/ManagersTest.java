@@ -1,5 +1,6 @@
 package dc.yandex.kanban.service;
 
+import dc.yandex.kanban.model.Task;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -23,4 +24,14 @@ class ManagersTest {
         assertNotNull(manager);
         assertEquals(0, manager.getHistory().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnBoundedHistoryManager() {
+        HistoryManager manager = Managers.getDefaultHistory(2);
+        for (int i = 1; i <= 3; i++) {
+            manager.add(new Task(i, "Задача " + i, "Описание " + i));
+        }
+        assertEquals(2, manager.getHistory().size());
+        assertEquals(2, manager.getHistory().get(0).getId());
+    }
+}
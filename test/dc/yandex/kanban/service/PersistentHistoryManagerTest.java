@@ -0,0 +1,66 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.storage.TaskJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentHistoryManagerTest {
+    private static final int HISTORY_SIZE = 10;
+
+    private Path path;
+    private PersistentHistoryManager history;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        path = Files.createTempFile("history_", ".txt");
+        history = new PersistentHistoryManager(new InMemoryHistoryManager(HISTORY_SIZE), path);
+        history.reset();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        history.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void shouldKeepFileBoundedWhenHistoryEvicts() {
+        int views = 5000;
+        for (int id = 1; id <= views; id++) {
+            history.add(new Task(id, "Задача " + id, "Описание"));
+        }
+        List<Integer> expected = IntStream.rangeClosed(views - HISTORY_SIZE + 1, views)
+                .boxed().collect(Collectors.toList());
+
+        assertEquals(expected, ids(history.getHistory()));
+        long records = TaskJournal.readRecords(path).size();
+        assertTrue(records <= 1000, "Файл истории растет вместе с вытесненными просмотрами: " + records);
+
+        history.remove(1); // вытесненная задача уже не в истории - запись удаления не нужна
+        assertEquals(records, TaskJournal.readRecords(path).size());
+
+        history.close();
+        PersistentHistoryManager restored =
+                new PersistentHistoryManager(new InMemoryHistoryManager(HISTORY_SIZE), path);
+        restored.restore(id -> new Task(id, "Задача " + id, "Описание"));
+        assertEquals(expected, ids(restored.getHistory()));
+        assertEquals(HISTORY_SIZE, TaskJournal.readRecords(path).size(), "Файл не переписан после восстановления");
+        restored.close();
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,189 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionHistoryManagerTest {
+
+    private AtomicLong time;
+    private SessionHistoryManager manager;
+    private Task task1;
+    private Task task2;
+    private Task task3;
+
+    @BeforeEach
+    public void beforeEach() {
+        time = new AtomicLong();
+        manager = new SessionHistoryManager(2, 10, Duration.ofMinutes(30), time::get);
+        task1 = new Task(1, "Задача 1", "Описание 1");
+        task2 = new Task(2, "Задача 2", "Описание 2");
+        task3 = new Task(3, "Задача 3", "Описание 3");
+    }
+
+    @Test
+    public void shouldKeepSeparateBoundedHistoryPerSession() {
+        manager.add("alice", task1);
+        manager.add("bob", task2);
+        manager.add("alice", task2);
+        manager.add("alice", task3); // история сессии ограничена двумя задачами
+        manager.add(task1); // просмотр без сессии
+
+        assertEquals(List.of(task2, task3), manager.getHistory("alice"));
+        assertEquals(List.of(task2), manager.getHistory("bob"));
+        assertEquals(List.of(task1), manager.getHistory());
+        assertEquals(List.of(task1), manager.getHistory(null), "Пустая сессия не совпадает с анонимной.");
+        assertTrue(manager.getHistory("carol").isEmpty(), "У неизвестной сессии есть история.");
+    }
+
+    @Test
+    public void shouldRemoveTaskFromAllSessions() {
+        manager.add("alice", task1);
+        manager.add("alice", task2);
+        manager.add("bob", task1);
+        manager.remove(task1.getId());
+
+        assertEquals(List.of(task2), manager.getHistory("alice"));
+        assertTrue(manager.getHistory("bob").isEmpty(), "Удаленная задача осталась в истории сессии.");
+    }
+
+    @Test
+    public void shouldExpireIdleSessions() {
+        manager.add("alice", task1);
+        manager.add("bob", task2);
+        time.addAndGet(Duration.ofMinutes(20).toNanos());
+        manager.getHistory("alice"); // обращение продлевает сессию
+
+        time.addAndGet(Duration.ofMinutes(20).toNanos());
+        manager.add("carol", task3);
+
+        assertEquals(2, manager.getSessionCount(), "Простаивающая сессия не удалена.");
+        assertEquals(List.of(task1), manager.getHistory("alice"));
+        assertTrue(manager.getHistory("bob").isEmpty(), "История простаивающей сессии сохранилась.");
+
+        manager.add("bob", task3); // клиент после простоя начинает новую историю
+        assertEquals(List.of(task3), manager.getHistory("bob"));
+    }
+
+    @Test
+    public void shouldShareAnonymousSessionBetweenThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        manager.add(new Task(thread * 1000 + i + 1, "Задача", "Описание"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2, manager.getHistory().size(), "История анонимной сессии не ограничена.");
+        manager.add(task1);
+        manager.add(task2);
+        time.addAndGet(Duration.ofHours(1).toNanos());
+        manager.add("alice", task3);
+
+        assertEquals(List.of(task1, task2), manager.getHistory(), "Анонимная сессия потеряла последние просмотры.");
+        assertEquals(1, manager.getSessionCount(), "Анонимная сессия учтена среди сессий клиентов.");
+
+        manager.remove(task1.getId());
+        assertEquals(List.of(task2), manager.getHistory());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedSessionsOverLimit() {
+        for (int i = 0; i < 10; i++) {
+            manager.add("client" + i, task1);
+            time.incrementAndGet();
+        }
+        manager.getHistory("client0"); // обращение делает сессию недавно использованной
+        time.incrementAndGet();
+        manager.add("client10", task2);
+
+        assertTrue(manager.getSessionCount() <= 10, "Количество сессий превысило ограничение.");
+        assertEquals(List.of(task1), manager.getHistory("client0"));
+        assertTrue(manager.getHistory("client1").isEmpty(), "Давно не использованная сессия не удалена.");
+        assertEquals(List.of(task2), manager.getHistory("client10"));
+    }
+
+    @Test
+    public void shouldKeepTaskIndexBoundedBySessionHistories() {
+        for (int i = 1; i <= 1000; i++) {
+            manager.add("alice", new Task(i, "Задача " + i, "Описание"));
+        }
+        assertEquals(2, manager.getIndexedTaskCount(), "Индекс хранит вытесненные из истории задачи.");
+        manager.remove(1000);
+        assertEquals(1, manager.getIndexedTaskCount());
+        assertEquals(List.of(999), manager.getHistory("alice").stream().map(Task::getId).collect(Collectors.toList()));
+
+        for (int i = 0; i < 100; i++) {
+            manager.add("client" + i, task3);
+        }
+        assertTrue(manager.getIndexedTaskCount() <= 2, "Индекс хранит задачи удаленных сессий.");
+        manager.remove(task3.getId());
+        assertTrue(manager.getIndexedTaskCount() <= 1);
+        assertTrue(manager.getHistory("client99").isEmpty(), "Задача не удалена из истории сессии.");
+    }
+
+    @Test
+    public void shouldNotRestoreTaskViewedConcurrentlyWithRemoval() throws Exception {
+        int tasks = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                String session = "client" + t;
+                futures.add(executor.submit(() -> {
+                    for (int id = 1; id <= tasks; id++) {
+                        Task task = new Task(id, "Задача " + id, "Описание");
+                        manager.add(session, task);
+                        manager.add(task);
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int id = 1; id <= tasks; id++) {
+                    manager.remove(id);
+                }
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // просмотр, записанный уже после удаления задачи, не должен вернуть ее в историю
+        Task viewedLate = new Task(tasks, "Задача", "Описание");
+        manager.add("client0", viewedLate);
+        manager.add(viewedLate);
+
+        for (int t = 0; t < 3; t++) {
+            assertTrue(manager.getHistory("client" + t).isEmpty(), "Удаленная задача вернулась в историю сессии.");
+        }
+        assertTrue(manager.getHistory().isEmpty(), "Удаленная задача вернулась в анонимную историю.");
+        assertEquals(0, manager.getIndexedTaskCount(), "Удаленная задача осталась в индексе.");
+
+        time.addAndGet(Duration.ofHours(1).toNanos());
+        manager.getHistory("client0");
+        assertEquals(0, manager.getRemovedTaskCount(), "Отметки удаленных задач не очищаются.");
+    }
+}
@@ -0,0 +1,47 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TaskIdIndexTest {
+
+    @Test
+    public void shouldMatchHashMapAfterRandomChanges() {
+        TaskIdIndex index = new TaskIdIndex();
+        Map<Integer, Task> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            // id с общим шагом, отрицательные и нулевой id попадают в одни цепочки
+            int id = (random.nextInt(600) - 100) * 1024;
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(id), index.remove(id));
+            } else {
+                Task task = new Task(id, "Задача " + i, "Описание " + i);
+                assertSame(expected.put(id, task), index.put(id, task));
+            }
+            int probe = (random.nextInt(600) - 100) * 1024;
+            assertSame(expected.get(probe), index.get(probe));
+        }
+        assertEquals(expected.size(), index.size());
+        expected.forEach((id, task) -> assertSame(task, index.get(id)));
+    }
+
+    @Test
+    public void shouldBeEmptyAfterClear() {
+        TaskIdIndex index = new TaskIdIndex();
+        for (int id = 1; id <= 100; id++) {
+            index.put(id, new Task(id, "Задача " + id, "Описание " + id));
+        }
+        index.clear();
+        assertEquals(0, index.size());
+        assertNull(index.get(50));
+    }
+}
@@ -0,0 +1,85 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskIntervalTreeTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 7, 24, 0, 0);
+
+    @Test
+    public void shouldFindOverlapsWithHalfOpenIntervals() {
+        TaskIntervalTree tree = new TaskIntervalTree();
+        tree.put(task(1, 60, 30)); // 01:00 - 01:30
+        tree.put(task(2, 120, 0)); // 02:00, без продолжительности
+
+        assertTrue(tree.overlaps(BASE.plusMinutes(80), BASE.plusMinutes(100), 0));
+        assertFalse(tree.overlaps(BASE.plusMinutes(90), BASE.plusMinutes(120), 0), "Смежные интервалы пересеклись");
+        assertFalse(tree.overlaps(BASE.plusMinutes(60), BASE.plusMinutes(90), 1), "Задача пересеклась сама с собой");
+        assertTrue(tree.overlaps(BASE.plusMinutes(110), BASE.plusMinutes(130), 0));
+
+        tree.put(task(1, 200, 30));
+        assertFalse(tree.overlaps(BASE.plusMinutes(60), BASE.plusMinutes(90), 0), "Остался старый интервал задачи");
+        tree.remove(2);
+        assertFalse(tree.overlaps(BASE.plusMinutes(110), BASE.plusMinutes(130), 0), "Осталась удаленная задача");
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void shouldMatchFullScanAfterRandomChanges() {
+        TaskIntervalTree tree = new TaskIntervalTree();
+        Map<Integer, Task> tasks = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            int id = random.nextInt(300);
+            if (random.nextInt(4) == 0) {
+                tree.remove(id);
+                tasks.remove(id);
+            } else {
+                Task task = task(id, random.nextInt(10_000), random.nextInt(120));
+                tree.put(task);
+                tasks.put(id, task);
+            }
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(10_000));
+            Duration duration = Duration.ofMinutes(1 + random.nextInt(120));
+            assertEquals(overlapsAny(tasks.values(), start, start.plus(duration)),
+                    tree.overlaps(start, start.plus(duration), -1));
+
+            // свободное начало ни с чем не пересекается, а более ранние кандидаты - начало поиска
+            // и окончания задач до найденного начала - заняты
+            LocalDateTime freeStart = tree.findFreeStart(start, duration);
+            assertFalse(overlapsAny(tasks.values(), freeStart, freeStart.plus(duration)));
+            List<LocalDateTime> earlierStarts = tasks.values().stream()
+                    .map(Task::getEndTime)
+                    .filter(end -> end.isAfter(start) && end.isBefore(freeStart))
+                    .collect(Collectors.toList());
+            if (freeStart.isAfter(start)) earlierStarts.add(start);
+            for (LocalDateTime earlierStart : earlierStarts) {
+                assertTrue(overlapsAny(tasks.values(), earlierStart, earlierStart.plus(duration)),
+                        "Пропущен более ранний свободный интервал");
+            }
+        }
+    }
+
+    private static boolean overlapsAny(Collection<Task> tasks, LocalDateTime start, LocalDateTime end) {
+        return tasks.stream().anyMatch(task -> task.getStartTime().isBefore(end) && task.getEndTime().isAfter(start));
+    }
+
+    private static Task task(int id, int startMinute, int durationMinutes) {
+        return new Task(id, "Задача " + id, "Описание " + id,
+                BASE.plusMinutes(startMinute), Duration.ofMinutes(durationMinutes));
+    }
+}
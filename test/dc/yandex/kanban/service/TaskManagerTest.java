@@ -5,11 +5,13 @@ import dc.yandex.kanban.model.Epic;
 import dc.yandex.kanban.model.SubTask;
 import dc.yandex.kanban.model.Task;
 import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -50,6 +52,11 @@ public abstract class TaskManagerTest {
                 Duration.ofMinutes(30));
     }
 
+    // Устанавливает счетчик id менеджера, чтобы новые задачи не совпали по id с задачами теста
+    protected void setTaskCounter(int taskCounter) {
+        ((InMemoryTaskManager) manager).setTaskCounter(taskCounter);
+    }
+
     @Test
     public void shouldAddTaskAndCheckFields() {
         manager.addTask(task);
@@ -202,6 +209,165 @@ public abstract class TaskManagerTest {
         assertDoesNotThrow(() -> manager.addTask(nonconflictingTask));
     }
 
+    @Test
+    public void shouldCheckConflictsAfterUpdateAndDelete() {
+        manager.addTask(task);
+        manager.updateTask(new Task(1, "Задача 1 перенесенная", "Описание 1",
+                LocalDateTime.of(2024, 7, 25, 12, 20), Duration.ofMinutes(30)));
+        assertDoesNotThrow(() -> manager.addTask(conflictingTask), "Учтено старое время обновленной задачи");
+
+        manager.deleteTaskById(conflictingTask.getId());
+        assertDoesNotThrow(() -> manager.addTask(new Task(8, "Задача 4", "Описание 4",
+                LocalDateTime.of(2024, 7, 24, 12, 10), Duration.ofMinutes(30))), "Учтена удаленная задача");
+        assertThrows(RuntimeException.class, () -> manager.addTask(new Task(9, "Задача 5", "Описание 5",
+                LocalDateTime.of(2024, 7, 25, 12, 0), Duration.ofMinutes(30))));
+    }
+
+    @Test
+    public void shouldGetTasksByTimeRange() {
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubTask(subTask);
+        manager.addSubTask(subTask2);
+        manager.addSubTask(subTask3);
+
+        assertEquals(List.of(subTask2, task), manager.getTasksBetween(subTask2.getStartTime(), subTask.getStartTime()));
+        assertEquals(List.of(subTask), manager.getTasksStartingAfter(task.getStartTime()));
+        assertEquals(0, manager.getTasksBetween(subTask.getStartTime(), task.getStartTime()).size());
+
+        Iterator<Task> iterator = manager.iterateTasksFrom(task.getStartTime());
+        assertEquals(task, iterator.next());
+        assertEquals(subTask, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void shouldPrioritizeTasksWithSameStartTime() {
+        Task milestone = new Task(8, "Веха 1", "Описание вехи 1", task.getStartTime(), Duration.ZERO);
+        manager.addTask(task);
+        manager.addTask(milestone);
+        manager.addTask(nonconflictingTask);
+        assertEquals(List.of(task, milestone, nonconflictingTask), manager.getPrioritizedTasks(),
+                "Задача с тем же временем начала потеряна");
+
+        manager.updateTask(new Task(1, "Задача 1 перенесенная", "Описание 1",
+                LocalDateTime.of(2024, 7, 30, 12, 20), Duration.ofMinutes(30)));
+        List<Task> prioritizedTasks = manager.getPrioritizedTasks();
+        assertEquals(List.of(milestone, nonconflictingTask, task), prioritizedTasks,
+                "Осталась устаревшая запись обновленной задачи");
+        assertEquals(LocalDateTime.of(2024, 7, 30, 12, 20), prioritizedTasks.get(2).getStartTime());
+    }
+
+    @Test
+    public void shouldCompareRangeBoundsWithSeconds() {
+        Task boundary = manager.createNewTask("Задача на границе", "Описание",
+                LocalDateTime.of(2024, 7, 24, 10, 0, 15), Duration.ofMinutes(10));
+        manager.addTask(boundary);
+
+        assertEquals(List.of(boundary), manager.getTasksBetween(LocalDateTime.of(2024, 7, 24, 9, 0),
+                LocalDateTime.of(2024, 7, 24, 10, 0, 30)), "Задача до правой границы интервала потеряна");
+        assertTrue(manager.getTasksBetween(LocalDateTime.of(2024, 7, 24, 10, 0, 30),
+                LocalDateTime.of(2024, 7, 24, 11, 0)).isEmpty(), "Задача до левой границы попала в интервал");
+        assertTrue(manager.getTasksStartingAfter(LocalDateTime.of(2024, 7, 24, 10, 0, 30)).isEmpty());
+        assertEquals(List.of(boundary), manager.getTasksStartingAfter(LocalDateTime.of(2024, 7, 24, 9, 59, 59)));
+    }
+
+    @Test
+    public void shouldFindNextFreeSlot() {
+        manager.addTask(task); // 12:20 - 12:50
+        manager.addEpic(epic);
+        manager.addSubTask(subTask); // 13:30 - 14:00
+
+        LocalDateTime morning = LocalDateTime.of(2024, 7, 24, 8, 0);
+        assertEquals(morning, manager.findNextFreeSlot(Duration.ofMinutes(60), morning));
+        assertEquals(task.getEndTime(), manager.findNextFreeSlot(Duration.ofMinutes(40), task.getStartTime()));
+        assertEquals(subTask.getEndTime(), manager.findNextFreeSlot(Duration.ofMinutes(41), task.getStartTime()),
+                "Интервал не вмещает задачу");
+
+        setTaskCounter(10); // id задач теста заданы вручную
+        Task reserved = manager.addTaskInFreeSlot("Задача в свободном интервале", "Описание",
+                Duration.ofMinutes(40), task.getStartTime());
+        assertEquals(task.getEndTime(), reserved.getStartTime());
+        assertEquals(reserved, manager.getTaskById(reserved.getId()));
+        assertEquals(subTask.getEndTime(), manager.findNextFreeSlot(Duration.ofMinutes(1), task.getStartTime()));
+    }
+
+    @Test
+    public void shouldRejectInvalidFreeSlotRequests() {
+        LocalDateTime morning = LocalDateTime.of(2024, 7, 24, 8, 0);
+        assertThrows(IllegalArgumentException.class, () -> manager.findNextFreeSlot(null, morning));
+        assertThrows(IllegalArgumentException.class, () -> manager.findNextFreeSlot(Duration.ofMinutes(30), null));
+        assertThrows(IllegalArgumentException.class, () -> manager.findNextFreeSlot(Duration.ZERO, morning));
+        assertThrows(IllegalArgumentException.class, () -> manager.findNextFreeSlot(Duration.ofMinutes(-30), morning));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.addTaskInFreeSlot("Задача", "Описание", Duration.ofMinutes(-30), morning));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.addTaskInFreeSlot("Задача", "Описание", null, morning));
+        assertTrue(manager.getTasks().isEmpty(), "Задача с некорректной продолжительностью добавлена");
+    }
+
+    @Test
+    public void shouldGetTasksByStatus() {
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubTask(subTask);
+        manager.addSubTask(subTask2);
+
+        subTask.setStatus(TaskStatus.IN_PROGRESS);
+        assertEquals(List.of(subTask), manager.getTasksByStatus(TaskStatus.IN_PROGRESS, TaskType.SUBTASK));
+        assertEquals(List.of(epic), manager.getTasksByStatus(TaskStatus.IN_PROGRESS, TaskType.EPIC),
+                "Статус эпика не обновлен в индексе");
+        assertEquals(List.of(task), manager.getTasksByStatus(TaskStatus.NEW, TaskType.TASK));
+
+        subTask.setStatus(TaskStatus.DONE);
+        subTask2.setStatus(TaskStatus.DONE);
+        assertEquals(3, manager.getTasksByStatus(TaskStatus.DONE, null).size());
+
+        manager.deleteTaskById(subTask2.getId());
+        assertEquals(List.of(subTask), manager.getTasksByStatus(TaskStatus.DONE, TaskType.SUBTASK),
+                "Удаленная подзадача осталась в индексе");
+        manager.updateTask(updatedTask);
+        assertEquals(List.of(updatedTask), manager.getTasksByStatus(TaskStatus.NEW, TaskType.TASK));
+    }
+
+    @Test
+    public void shouldSearchTasks() {
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubTask(subTask);
+        manager.addSubTask(subTask2);
+
+        assertEquals(List.of(epic), manager.search("эпик", 1), "Совпадение в названии не ранжировано выше");
+        assertEquals(3, manager.search("эпик", 10).size());
+        assertEquals(2, manager.search("подзадачи эпика", 10).size());
+
+        manager.updateTask(updatedTask);
+        assertEquals(List.of(task), manager.search("новое", 10));
+        manager.deleteTaskById(subTask.getId());
+        assertEquals(List.of(subTask2), manager.search("подзадача", 10), "Удаленная подзадача найдена");
+    }
+
+    @Test
+    public void shouldGetTasksByPages() {
+        manager.addEpic(epic);
+        manager.addSubTask(subTask);
+        manager.addSubTask(subTask2);
+        manager.addSubTask(subTask3);
+
+        Page<SubTask> page = manager.getSubTasksPage(null, 2);
+        assertEquals(List.of(subTask, subTask2), page.getItems());
+        assertTrue(page.hasNext());
+        page = manager.getSubTasksPage(page.getNextCursor(), 2);
+        assertEquals(List.of(subTask3), page.getItems());
+        assertFalse(page.hasNext(), "Курсор есть у последней страницы");
+
+        page = manager.getEpicSubTasksPage(epic.getId(), Page.encodeCursor(subTask.getId()), 5);
+        assertEquals(List.of(subTask2, subTask3), page.getItems());
+        assertEquals(List.of(epic), manager.getEpicsPage(null, 1).getItems());
+        assertEquals(0, manager.getTasksPage(null, 10).getItems().size());
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage("не курсор", 10));
+    }
+
     @Test
     public void shouldNotPrioritizeTaskWithEmptyDate() {
         task = new Task(1, "Задача 1 без даты", "Описание 1 без даты");
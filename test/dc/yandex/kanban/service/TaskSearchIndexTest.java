@@ -0,0 +1,43 @@
+package dc.yandex.kanban.service;
+
+import dc.yandex.kanban.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TaskSearchIndexTest {
+
+    @Test
+    public void shouldNormalizeRussianWords() {
+        assertEquals(Set.of("задач"), TaskSearchIndex.tokenize("Задача, задачи; ЗАДАЧУ"));
+        assertEquals(TaskSearchIndex.normalize("ещё"), TaskSearchIndex.normalize("еще"));
+        assertEquals(Set.of("api", "v2", "сервер"), TaskSearchIndex.tokenize("API v2 (сервера)"));
+    }
+
+    @Test
+    public void shouldRankNameMatchesFirst() {
+        TaskSearchIndex index = new TaskSearchIndex();
+        index.put(new Task(1, "Починить сервер", "Описание"));
+        index.put(new Task(2, "Обновить документацию", "Описать настройку сервера"));
+        index.put(new Task(3, "Настроить сервер", "Сервер задач"));
+        index.put(new Task(4, "Купить молоко", "Не забыть"));
+
+        assertEquals(List.of(3, 1, 2), ids(index.search("серверы", 10)));
+        assertEquals(List.of(3), ids(index.search("сервер задачи", 10)), "Найдены задачи не со всеми словами");
+        assertEquals(List.of(3), ids(index.search("сервер", 1)));
+
+        index.put(new Task(3, "Купить хлеб", "И молоко"));
+        assertEquals(List.of(1, 2), ids(index.search("сервер", 10)), "Остались слова прежней версии задачи");
+        index.remove(4);
+        assertEquals(List.of(3), ids(index.search("молоко", 10)));
+        assertEquals(0, index.search("", 10).size());
+    }
+
+    private static List<Integer> ids(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).collect(Collectors.toList());
+    }
+}
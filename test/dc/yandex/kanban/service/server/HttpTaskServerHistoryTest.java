@@ -7,6 +7,7 @@ import com.google.gson.JsonParser;
 import dc.yandex.kanban.model.Epic;
 import dc.yandex.kanban.model.SubTask;
 import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.ConcurrentTaskManager;
 import dc.yandex.kanban.service.InMemoryTaskManager;
 import dc.yandex.kanban.service.TaskManager;
 import dc.yandex.kanban.service.server.handlers.BaseHttpHandler;
@@ -122,4 +123,41 @@ public class HttpTaskServerHistoryTest {
             assertEquals(4, jsonArray.size(), "Некорректное количество задач в истории");
         }
     }
+
+    @Test
+    public void testGetHistoryBySession() throws IOException, InterruptedException {
+        // история по сессиям ведется в менеджере для многопоточного сервера
+        taskServer.stop();
+        manager = new ConcurrentTaskManager();
+        taskServer = new HttpTaskServer(manager);
+        taskServer.start();
+
+        Task task = manager.createNewTask("Test 2", "Testing task 2");
+        Task task2 = manager.createNewTask("Test 3", "Testing task 3");
+        manager.addTask(task);
+        manager.addTask(task2);
+
+        HttpClient client = HttpClient.newHttpClient();
+        client.send(sessionRequest(HttpTaskServer.TASK_END_POINT + "/" + task.getId(), "alice"),
+                HttpResponse.BodyHandlers.ofString());
+        client.send(sessionRequest(HttpTaskServer.TASK_END_POINT + "/" + task2.getId(), "bob"),
+                HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> response = client.send(sessionRequest(endPoint, "alice"),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(List.of(task)), response.body(), "В истории клиента чужие просмотры");
+
+        response = client.send(sessionRequest(endPoint, "bob"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(gson.toJson(List.of(task2)), response.body(), "В истории клиента чужие просмотры");
+        assertTrue(manager.getHistory().isEmpty(), "Просмотры с сессией попали в общую историю");
+    }
+
+    private HttpRequest sessionRequest(String path, String sessionId) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + path))
+                .header(BaseHttpHandler.SESSION_HEADER, sessionId)
+                .GET()
+                .build();
+    }
 }
@@ -122,4 +122,34 @@ public class HttpTaskServerPrioritizedTest {
             assertEquals(4, jsonArray.size(), "Некорректное количество задач в списке по приоритету");
         }
     }
+
+    @Test
+    public void testGetPrioritizedBetween() throws IOException, InterruptedException {
+        LocalDateTime day = LocalDateTime.of(2024, 8, 4, 0, 0);
+        Task task = manager.createNewTask("Test 1", "Testing task 1",
+                day.plusHours(10), Duration.ofMinutes(5));
+        Task task2 = manager.createNewTask("Test 2", "Testing task 2",
+                day.plusDays(1).plusHours(10), Duration.ofMinutes(5));
+        manager.addTask(task);
+        manager.addTask(task2);
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint + "?from=" + day + "&to=" + day.plusDays(1));
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(List.of(task)), response.body(), "Вернулись задачи вне интервала");
+
+        url = URI.create("http://localhost:8080" + endPoint + "?from=tomorrow");
+        request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
 }
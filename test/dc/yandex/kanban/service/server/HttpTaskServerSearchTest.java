@@ -0,0 +1,70 @@
+package dc.yandex.kanban.service.server;
+
+import com.google.gson.Gson;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.InMemoryTaskManager;
+import dc.yandex.kanban.service.TaskManager;
+import dc.yandex.kanban.service.server.handlers.BaseHttpHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HttpTaskServerSearchTest {
+
+    TaskManager manager;
+    HttpTaskServer taskServer;
+    Gson gson = BaseHttpHandler.getDefaultGson();
+
+    String endPoint = HttpTaskServer.SEARCH_END_POINT;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        manager = new InMemoryTaskManager();
+        taskServer = new HttpTaskServer(manager);
+        taskServer.start();
+    }
+
+    @AfterEach
+    public void shutDown() {
+        taskServer.stop();
+    }
+
+    @Test
+    public void testSearch() throws IOException, InterruptedException {
+        Task task = manager.createNewTask("Настроить сервер", "Сервер для тестов");
+        Task task2 = manager.createNewTask("Обновить документацию", "Описать запуск сервера");
+        manager.addTask(task);
+        manager.addTask(task2);
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint + "?q="
+                + URLEncoder.encode("серверы", StandardCharsets.UTF_8) + "&limit=1");
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(List.of(task)), response.body(), "Некорректный результат поиска");
+
+        url = URI.create("http://localhost:8080" + endPoint);
+        request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+}
@@ -0,0 +1,117 @@
+package dc.yandex.kanban.service.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import dc.yandex.kanban.model.Task;
+import dc.yandex.kanban.service.InMemoryTaskManager;
+import dc.yandex.kanban.service.TaskManager;
+import dc.yandex.kanban.service.server.handlers.BaseHttpHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class HttpTaskServerSlotsTest {
+
+    TaskManager manager;
+    HttpTaskServer taskServer;
+    Gson gson = BaseHttpHandler.getDefaultGson();
+
+    String endPoint = HttpTaskServer.SLOT_END_POINT;
+    LocalDateTime start = LocalDateTime.of(2024, 8, 4, 10, 0);
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        manager = new InMemoryTaskManager();
+        taskServer = new HttpTaskServer(manager);
+        taskServer.start();
+        manager.addTask(manager.createNewTask("Test 1", "Testing task 1", start, Duration.ofMinutes(30)));
+        manager.addTask(manager.createNewTask("Test 2", "Testing task 2",
+                start.plusMinutes(45), Duration.ofMinutes(30)));
+    }
+
+    @AfterEach
+    public void shutDown() {
+        taskServer.stop();
+    }
+
+    @Test
+    public void testFindSlot() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint + "?duration=20&from=" + start);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonObject slot = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(start.plusMinutes(75), gson.fromJson(slot.get("startTime"), LocalDateTime.class),
+                "Найден интервал, не вмещающий задачу");
+
+        url = URI.create("http://localhost:8080" + endPoint + "?from=" + start);
+        request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
+
+    @Test
+    public void testReserveSlot() throws IOException, InterruptedException {
+        Task task = new Task(0, "Test 3", "Testing task 3", start, Duration.ofMinutes(15));
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+
+        List<Task> tasksFromManager = manager.getPrioritizedTasks();
+        assertEquals(3, tasksFromManager.size(), "Некорректное количество задач");
+        Task reserved = tasksFromManager.get(1);
+        assertEquals("Test 3", reserved.getName());
+        assertEquals(start.plusMinutes(30), reserved.getStartTime());
+        assertEquals(gson.toJson(reserved), response.body());
+    }
+
+    @Test
+    public void testRejectNonPositiveDuration() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint);
+        for (Duration duration : List.of(Duration.ZERO, Duration.ofMinutes(-15))) {
+            Task task = new Task(0, "Test 3", "Testing task 3", start, duration);
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                    .build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode());
+        }
+        assertEquals(2, manager.getPrioritizedTasks().size(), "Задача с некорректной продолжительностью создана");
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080" + endPoint + "?duration=0&from=" + start))
+                .GET()
+                .build();
+        assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
@@ -264,4 +264,34 @@ public class HttpTaskServerSubTasksTest {
         assertEquals(0, manager.getSubTasks().size(), "Подзадача не удалилась!");
     }
 
+
+    @Test
+    public void testGetSubTasksByStatus() throws IOException, InterruptedException {
+        Epic epic = manager.createNewEpic("Test Epic 1", "Testing Epic 1");
+        SubTask subTask = manager.createNewSubtask(epic, "Test 2", "Testing task 2");
+        SubTask subTask2 = manager.createNewSubtask(epic, "Test 3", "Testing task 3");
+        manager.addEpic(epic);
+        manager.addSubTask(subTask);
+        manager.addSubTask(subTask2);
+        subTask2.setStatus(TaskStatus.IN_PROGRESS);
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint + "?status=IN_PROGRESS");
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(List.of(subTask2)), response.body(), "Вернулись подзадачи с другим статусом");
+
+        url = URI.create("http://localhost:8080" + endPoint + "?status=STARTED");
+        request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+    }
 }
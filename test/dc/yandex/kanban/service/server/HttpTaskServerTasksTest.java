@@ -245,4 +245,33 @@ public class HttpTaskServerTasksTest {
         assertEquals(0, manager.getTasks().size(), "Задача не удалилась!");
     }
 
+
+    @Test
+    public void testGetTasksByPages() throws IOException, InterruptedException {
+        for (int i = 1; i <= 3; i++) {
+            manager.addTask(manager.createNewTask("Test " + i, "Testing task " + i));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        URI url = URI.create("http://localhost:8080" + endPoint + "?limit=2");
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(2, JsonParser.parseString(response.body()).getAsJsonArray().size());
+        String cursor = response.headers().firstValue("X-Next-Cursor").orElseThrow();
+
+        url = URI.create("http://localhost:8080" + endPoint + "?limit=2&after=" + cursor);
+        request = HttpRequest.newBuilder()
+                .uri(url)
+                .GET()
+                .build();
+        response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(gson.toJson(List.of(manager.getTaskById(3))), response.body());
+        assertTrue(response.headers().firstValue("X-Next-Cursor").isEmpty(), "Курсор есть у последней страницы");
+    }
 }
@@ -0,0 +1,72 @@
+package dc.yandex.kanban.service.storage;
+
+import dc.yandex.kanban.model.TaskStatus;
+import dc.yandex.kanban.model.TaskType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskCsvCodecTest {
+
+    private final TaskCsvCodec codec = new TaskCsvCodec();
+
+    @Test
+    public void shouldQuoteSpecialCharacters() {
+        TaskRecord record = new TaskRecord(5, TaskType.SUBTASK, TaskStatus.DONE,
+                LocalDateTime.of(2024, 1, 2, 3, 4), Duration.ofMinutes(90), 3,
+                "Имя, с запятой", "Описание с \"кавычками\"\nи переводом строки");
+
+        String row = codec.format(record).toString();
+        assertEquals("5,SUBTASK,2024-01-02 03:04,90,\"Имя, с запятой\",DONE,"
+                + "\"Описание с \"\"кавычками\"\"\nи переводом строки\",3", row);
+
+        TaskRecord parsed = codec.parse(row);
+        assertEquals(record.getId(), parsed.getId());
+        assertEquals(record.getType(), parsed.getType());
+        assertEquals(record.getStatus(), parsed.getStatus());
+        assertEquals(record.getStartTime(), parsed.getStartTime());
+        assertEquals(record.getDuration(), parsed.getDuration());
+        assertEquals(record.getEpicId(), parsed.getEpicId());
+        assertEquals(record.getName(), parsed.getName());
+        assertEquals(record.getDescription(), parsed.getDescription());
+    }
+
+    @Test
+    public void shouldParseUnquotedRows() {
+        TaskRecord parsed = codec.parse("1,TASK,,,Задача 1,NEW,Описание 1");
+
+        assertEquals(1, parsed.getId());
+        assertEquals(TaskType.TASK, parsed.getType());
+        assertNull(parsed.getStartTime());
+        assertEquals(Duration.ZERO, parsed.getDuration());
+        assertEquals(0, parsed.getEpicId());
+        assertNull(codec.parse("1,TASK,Задача"), "Строка с недостающими полями должна пропускаться");
+    }
+
+    @Test
+    public void shouldReadRowsFromStream() throws IOException {
+        StringWriter writer = new StringWriter();
+        writer.append(TaskCsvCodec.HEADER).append('\n');
+        codec.write(new TaskRecord(1, TaskType.EPIC, TaskStatus.NEW, null, Duration.ZERO, 0,
+                "Эпик\n1", "Описание"), writer);
+        writer.append("2,SUBTASK,,,Некорректная,UNKNOWN,Описание,1\n");
+        codec.write(new TaskRecord(3, TaskType.SUBTASK, TaskStatus.IN_PROGRESS, null, Duration.ZERO, 1,
+                "Подзадача", ""), writer);
+
+        List<TaskRecord> records = new ArrayList<>();
+        codec.read(new StringReader(writer.toString()), records::add);
+
+        assertEquals(2, records.size());
+        assertEquals("Эпик\n1", records.get(0).getName());
+        assertEquals(3, records.get(1).getId());
+        assertEquals("", records.get(1).getDescription());
+    }
+}
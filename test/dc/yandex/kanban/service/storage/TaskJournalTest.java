@@ -0,0 +1,75 @@
+package dc.yandex.kanban.service.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskJournalTest {
+
+    private Path journalPath;
+    private PersistenceStats stats;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        File tmpFile = File.createTempFile("journal_", ".log");
+        tmpFile.deleteOnExit();
+        journalPath = tmpFile.toPath();
+        stats = new PersistenceStats();
+    }
+
+    @Test
+    public void shouldNotSyncWithoutDurability() {
+        TaskJournal journal = new TaskJournal(journalPath, DurabilityPolicy.none(), stats);
+        journal.append("PUT,1");
+        journal.append("DEL,1");
+        journal.close();
+
+        assertEquals(2, TaskJournal.readRecords(journalPath).size());
+        assertEquals(2, stats.getAppendCount());
+        assertEquals(0, stats.getSyncCount());
+    }
+
+    @Test
+    public void shouldSyncEveryOperation() {
+        TaskJournal journal = new TaskJournal(journalPath, DurabilityPolicy.perOperation(), stats);
+        for (int i = 0; i < 5; i++) {
+            journal.append("DEL," + i);
+        }
+        journal.close();
+
+        assertEquals(5, TaskJournal.readRecords(journalPath).size());
+        assertEquals(5, stats.getSyncCount());
+    }
+
+    @Test
+    public void shouldShareSyncBetweenConcurrentWriters() throws InterruptedException {
+        TaskJournal journal = new TaskJournal(journalPath, DurabilityPolicy.groupCommit(5, 8), stats);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int writerId = t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 25; i++) {
+                    journal.append("DEL," + (writerId * 100 + i));
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        journal.close();
+
+        assertEquals(200, TaskJournal.readRecords(journalPath).size());
+        assertTrue(stats.getSyncCount() < 200, "Сброс на диск не объединялся для одновременных записей");
+        assertTrue(stats.getSyncCount() > 0);
+    }
+}